@@ -33,4 +33,30 @@ public class RateLimiterConfig implements Serializable {
     private int port;
 
     private String password;
+
+    /**
+     * whether hybrid rules lease their tokens from the {@code spring.redis} connection,
+     * when false every node keeps its own buckets.
+     */
+    private Boolean redisLease = true;
+
+    /**
+     * most token buckets the local engine keeps, least recently used ones are evicted past it.
+     */
+    private long localMaxBuckets = 10000L;
+
+    /**
+     * how long an unused local token bucket is kept, in millis.
+     */
+    private long localIdleTimeout = 600000L;
+
+    /**
+     * how long tokens leased from redis stay valid, a lease holds about this long's worth of tokens, in millis.
+     */
+    private long leaseTime = 1000L;
+
+    /**
+     * share of a lease left when the next one is requested ahead of exhaustion.
+     */
+    private double leaseRefillRatio = 0.25D;
 }
@@ -35,6 +35,11 @@ public interface Constants {
      */
     String CLIENT_RESPONSE_ATTR = "webHandlerClientResponse";
 
+    /**
+     * The constant CACHED_REQUEST_BODY_ATTR.
+     */
+    String CACHED_REQUEST_BODY_ATTR = "cachedRequestBody";
+
     /**
      * The constant DUBBO_RPC_RESULT.
      */
@@ -0,0 +1,47 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.common.dto.convert;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * this is response cache plugin handle.
+ */
+@Data
+public class CacheHandle {
+
+    /**
+     * request headers that, besides method, path and query, tell cached responses apart.
+     */
+    private List<String> varyHeaders;
+
+    /**
+     * seconds a response stays fresh when the upstream sends no max-age.
+     */
+    private Integer ttl;
+
+    /**
+     * seconds a stale response is still served while it is refreshed in the background,
+     * when the upstream sends no stale-while-revalidate.
+     */
+    private Integer staleWhileRevalidate;
+
+}
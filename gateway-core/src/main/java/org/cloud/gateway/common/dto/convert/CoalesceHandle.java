@@ -0,0 +1,46 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.common.dto.convert;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * this is request coalescing plugin handle.
+ */
+@Data
+public class CoalesceHandle {
+
+    /**
+     * request headers that, besides method, path and query, must be equal for requests to be coalesced.
+     */
+    private List<String> varyHeaders;
+
+    /**
+     * longest a request waits for an identical one in flight, in millis.
+     */
+    private Integer maxWait;
+
+    /**
+     * largest response body shared with the waiting requests, in bytes.
+     */
+    private Integer maxBodyBytes;
+
+}
@@ -38,6 +38,11 @@ public class RateLimiterHandle {
      */
     private double burstCapacity;
 
+    /**
+     * engine enforcing the limit, see {@linkplain org.cloud.gateway.common.enums.RateLimiterModeEnum}.
+     */
+    private String mode;
+
     /**
      * loged.
      */
@@ -40,7 +40,19 @@ public class DivideRuleHandle extends HystrixHandle implements Serializable {
 
     /**
      * http retry.
+     * failed requests are retried on another upstream, within the gateway retry budget.
      */
     private int retry;
 
+    /**
+     * whether get requests are hedged: when the upstream has not answered within its p95 latency,
+     * a second request goes to another upstream and the first answer wins.
+     */
+    private boolean hedged;
+
+    /**
+     * request header whose value is the {@linkplain LoadBalanceEnum#HASH} key, the client ip when blank.
+     */
+    private String hashHeader;
+
 }
@@ -0,0 +1,75 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.common.dto.zk;
+
+import org.apache.commons.lang3.StringUtils;
+import org.cloud.gateway.common.utils.GSONUtils;
+
+/**
+ * A handle json decoded into a handle type.
+ * It remembers the json and type it was decoded from, so the owner can tell when it is stale.
+ */
+final class DecodedHandle {
+
+    private final String json;
+
+    private final Class<?> type;
+
+    private final Object value;
+
+    private DecodedHandle(final String json, final Class<?> type, final Object value) {
+        this.json = json;
+        this.type = type;
+        this.value = value;
+    }
+
+    /**
+     * decode a handle json, a blank json decodes to null.
+     *
+     * @param json handle json
+     * @param type handle type
+     * @return decoded handle
+     */
+    static DecodedHandle decode(final String json, final Class<?> type) {
+        final Object value = StringUtils.isBlank(json) ? null : GSONUtils.getInstance().fromJson(json, type);
+        return new DecodedHandle(json, type, value);
+    }
+
+    /**
+     * whether this was decoded from exactly this json into this type.
+     *
+     * @param json handle json
+     * @param type handle type
+     * @return true if up to date
+     */
+    boolean isDecodedFrom(final String json, final Class<?> type) {
+        return this.json == json && this.type == type;
+    }
+
+    /**
+     * the decoded handle.
+     *
+     * @param type handle type
+     * @param <T>  handle type
+     * @return decoded handle or null
+     */
+    <T> T getValue(final Class<T> type) {
+        return type.cast(value);
+    }
+}
@@ -19,12 +19,18 @@
 
 package org.cloud.gateway.common.dto.zk;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * SelectorZkDTO.
@@ -68,4 +74,35 @@ public class SelectorZkDTO implements Serializable {
     private String handle;
 
     private List<ConditionZkDTO> conditionZkDTOList;
+
+    /**
+     * the decoded {@code handle}, never serialized and never part of equality.
+     * initialized here, so it is not a constructor argument; a serializer that skips field initializers
+     * leaves it null, the handle is then decoded on every call.
+     */
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient AtomicReference<DecodedHandle> decodedHandle = new AtomicReference<>();
+
+    /**
+     * decode the handle json into the given type.
+     * the json is parsed once and the result is kept on this selector until the handle changes,
+     * callers share the decoded object and must not modify it.
+     *
+     * @param type handle type
+     * @param <T>  handle type
+     * @return decoded handle, null if the handle is blank
+     */
+    public <T> T acquireHandle(final Class<T> type) {
+        if (Objects.isNull(decodedHandle)) {
+            return DecodedHandle.decode(handle, type).getValue(type);
+        }
+        DecodedHandle decoded = decodedHandle.get();
+        if (decoded == null || !decoded.isDecodedFrom(handle, type)) {
+            decoded = DecodedHandle.decode(handle, type);
+            decodedHandle.set(decoded);
+        }
+        return decoded.getValue(type);
+    }
 }
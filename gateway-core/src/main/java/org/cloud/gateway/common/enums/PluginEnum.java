@@ -62,6 +62,16 @@ public enum PluginEnum {
      */
     REDIRECT(40, "redirect"),
 
+    /**
+     * Response cache plugin enum.
+     */
+    CACHE(45, "cache"),
+
+    /**
+     * Request coalescing plugin enum.
+     */
+    COALESCE(47, "coalesce"),
+
     /**
      * Divide plugin enum.
      */
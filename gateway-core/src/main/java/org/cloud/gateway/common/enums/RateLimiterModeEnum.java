@@ -0,0 +1,59 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.common.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * the engines a rate limiter rule can be enforced by.
+ */
+@RequiredArgsConstructor
+@Getter
+public enum RateLimiterModeEnum {
+
+    /**
+     * in-process token buckets, every gateway node enforces the limit on its own.
+     */
+    LOCAL(1, "local"),
+
+    /**
+     * token buckets in redis, shared by the cluster. every node leases tokens in batches and decides locally.
+     */
+    HYBRID(2, "hybrid");
+
+    private final int code;
+
+    private final String name;
+
+    /**
+     * get rate limiter mode by name.
+     *
+     * @param name mode name
+     * @return the mode, {@linkplain #LOCAL} when blank or unknown
+     */
+    public static RateLimiterModeEnum getRateLimiterModeByName(final String name) {
+        for (RateLimiterModeEnum mode : values()) {
+            if (mode.getName().equals(name)) {
+                return mode;
+            }
+        }
+        return LOCAL;
+    }
+}
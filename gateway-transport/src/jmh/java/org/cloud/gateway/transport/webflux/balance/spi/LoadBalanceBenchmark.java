@@ -0,0 +1,85 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.balance.spi;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.transport.webflux.balance.LoadBalance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * weighted random and smooth round robin selection over one shared upstream list, on one thread and on
+ * as many threads as event loops usually run, to see whether selection contends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBalanceBenchmark {
+
+    @Param({"random", "roundRobin"})
+    private String algorithm;
+
+    @Param({"3", "16"})
+    private int upstreamCount;
+
+    private LoadBalance loadBalance;
+
+    private List<DivideUpstream> upstreams;
+
+    @Setup
+    public void setup() {
+        loadBalance = "random".equals(algorithm) ? new RandomLoadBalance() : new RoundRobinLoadBalance();
+        upstreams = new ArrayList<>(upstreamCount);
+        for (int i = 0; i < upstreamCount; i++) {
+            final DivideUpstream upstream = new DivideUpstream();
+            upstream.setUpstreamUrl("10.0.0." + i + ":8080");
+            upstream.setWeight(1 + i % 3 * 50);
+            upstreams.add(upstream);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public DivideUpstream selectOneThread() {
+        return loadBalance.select(upstreams, null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DivideUpstream selectFourThreads() {
+        return loadBalance.select(upstreams, null);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * a {@code match} condition judged the way it used to be, raw text through {@linkplain AntPathMatcher},
+ * against the compiled {@linkplain PathPatterns} predicate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathPatternsBenchmark {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Param({"/api/v1/users", "/api/**", "/api/v1/user*", "/api/*/users/{id}"})
+    private String pattern;
+
+    @Param({"/api/v1/users", "/api/v1/users/42"})
+    private String path;
+
+    private Predicate<String> compiled;
+
+    @Setup
+    public void setup() {
+        compiled = PathPatterns.of(pattern);
+    }
+
+    @Benchmark
+    public boolean antPathMatcher() {
+        return PATH_MATCHER.match(pattern, path);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return compiled.test(path);
+    }
+}
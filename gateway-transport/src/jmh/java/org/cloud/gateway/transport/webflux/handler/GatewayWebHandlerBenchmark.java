@@ -0,0 +1,153 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.handler;
+
+import org.cloud.gateway.common.enums.PluginTypeEnum;
+import org.cloud.gateway.transport.webflux.plugin.Plugin;
+import org.cloud.gateway.transport.webflux.plugin.PluginChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the compiled chain of {@linkplain GatewayWebHandler} against the per request chain it replaced,
+ * over pass-through plugins of which every other one is switched off. run with {@code -prof gc} for the
+ * allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GatewayWebHandlerBenchmark {
+
+    @Param({"4", "12"})
+    private int pluginCount;
+
+    private List<Plugin> plugins;
+
+    private GatewayWebHandler handler;
+
+    private ServerWebExchange exchange;
+
+    @Setup
+    public void setup() {
+        plugins = new ArrayList<>(pluginCount);
+        for (int i = 0; i < pluginCount; i++) {
+            plugins.add(new PassThroughPlugin("plugin" + i, i % 2 == 0));
+        }
+        handler = new GatewayWebHandler(plugins);
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/benchmark"));
+    }
+
+    @Benchmark
+    public Mono<Void> compiledChain() {
+        final Mono<Void> result = handler.handle(exchange);
+        result.subscribe();
+        return result;
+    }
+
+    @Benchmark
+    public Mono<Void> perRequestChain() {
+        final Mono<Void> result = new DefaultPluginChain(plugins).execute(exchange)
+                .doOnError(Throwable::printStackTrace);
+        result.subscribe();
+        return result;
+    }
+
+    /**
+     * a plugin passing every request on, the way a switched off {@code AbstractPlugin} does.
+     */
+    private static final class PassThroughPlugin implements Plugin {
+
+        private final String name;
+
+        private final boolean enabled;
+
+        PassThroughPlugin(final String name, final boolean enabled) {
+            this.name = name;
+            this.enabled = enabled;
+        }
+
+        @Override
+        public Mono<Void> execute(final ServerWebExchange exchange, final PluginChain chain) {
+            return chain.execute(exchange);
+        }
+
+        @Override
+        public PluginTypeEnum pluginType() {
+            return PluginTypeEnum.FUNCTION;
+        }
+
+        @Override
+        public int getOrder() {
+            return 0;
+        }
+
+        @Override
+        public String named() {
+            return name;
+        }
+
+        @Override
+        public boolean enabled() {
+            return enabled;
+        }
+    }
+
+    /**
+     * the chain {@linkplain GatewayWebHandler} used to allocate for every request.
+     */
+    private static final class DefaultPluginChain implements PluginChain {
+
+        private final List<Plugin> plugins;
+
+        private int index;
+
+        DefaultPluginChain(final List<Plugin> plugins) {
+            this.plugins = plugins;
+        }
+
+        @Override
+        public Mono<Void> execute(final ServerWebExchange exchange) {
+            if (index < plugins.size()) {
+                final Plugin plugin = plugins.get(index++);
+                return plugin.execute(exchange, this);
+            }
+            return Mono.empty();
+        }
+    }
+}
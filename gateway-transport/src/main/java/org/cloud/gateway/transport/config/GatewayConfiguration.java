@@ -1,29 +1,62 @@
 package org.cloud.gateway.transport.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.I0Itec.zkclient.ZkClient;
 import org.cloud.gateway.cache.UpstreamCacheManager;
 import org.cloud.gateway.cache.ZookeeperCacheManager;
+import org.cloud.gateway.common.config.RateLimiterConfig;
+import org.cloud.gateway.common.enums.RateLimiterModeEnum;
 import org.cloud.gateway.web.disruptor.publisher.SoulEventPublisher;
 import org.cloud.gateway.transport.webflux.filter.StreamWebFilter;
 import org.cloud.gateway.transport.webflux.handler.GatewayHandlerMapping;
 import org.cloud.gateway.transport.webflux.handler.GatewayWebHandler;
+import org.cloud.gateway.transport.webflux.handler.PluginSwitchListener;
+import org.cloud.gateway.transport.webflux.cache.ResponseCache;
+import org.cloud.gateway.transport.webflux.health.UpstreamHealthChecker;
 
 import org.cloud.gateway.transport.webflux.plugin.Plugin;
 
 import org.cloud.gateway.transport.webflux.plugin.after.ResponsePlugin;
 
 import org.cloud.gateway.transport.webflux.plugin.before.CachedBodyPlugin;
+import org.cloud.gateway.transport.webflux.plugin.function.RateLimiterPlugin;
+import org.cloud.gateway.transport.webflux.plugin.function.RequestCoalescingPlugin;
+import org.cloud.gateway.transport.webflux.plugin.function.ResponseCachePlugin;
 import org.cloud.gateway.transport.webflux.plugin.function.RoutePlugin;
-
+import org.cloud.gateway.transport.webflux.ratelimiter.HybridRateLimiter;
+import org.cloud.gateway.transport.webflux.ratelimiter.InMemoryTokenLeaseSource;
+import org.cloud.gateway.transport.webflux.ratelimiter.LocalRateLimiter;
+import org.cloud.gateway.transport.webflux.ratelimiter.RateLimiter;
+import org.cloud.gateway.transport.webflux.ratelimiter.RedisTokenLeaseSource;
+import org.cloud.gateway.transport.webflux.ratelimiter.TokenLeaseSource;
+import org.cloud.gateway.transport.webflux.resilience.RetryBudget;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebHandler;
+import reactor.netty.http.HttpResources;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
 
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 
@@ -53,10 +86,153 @@ public class GatewayConfiguration {
 
 
     @Bean
-    public Plugin routePlugin() {
-        return new RoutePlugin(zookeeperCacheManager, upstreamCacheManager);
+    @ConfigurationProperties(prefix = "gateway.upstream")
+    public UpstreamHttpClientConfig upstreamHttpClientConfig() {
+        return new UpstreamHttpClientConfig();
+    }
+
+    /**
+     * the connection pools of the upstream client, one pool of {@code maxConnections} per upstream address,
+     * closed on shutdown.
+     *
+     * @param config upstream http client config
+     * @return connection provider
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider upstreamConnectionProvider(final UpstreamHttpClientConfig config) {
+        return ConnectionProvider.fixed("gateway-upstream", config.getMaxConnections(), config.getAcquireTimeout());
+    }
+
+    /**
+     * the event loops of the upstream client when it does not share those of the server, shut down on shutdown.
+     * none when shared, the server owns its loops.
+     *
+     * @param config upstream http client config
+     * @return loop resources, or null when shared
+     */
+    @Bean(destroyMethod = "dispose")
+    public LoopResources upstreamLoopResources(final UpstreamHttpClientConfig config) {
+        if (config.getShareEventLoop()) {
+            return null;
+        }
+        return LoopResources.create("gateway-upstream", config.getWorkerCount(), true);
+    }
+
+    /**
+     * the client the divide plugin proxies with.
+     *
+     * @param config                     upstream http client config
+     * @param upstreamConnectionProvider connection pools
+     * @param upstreamLoopResources      dedicated event loops, if any
+     * @return web client
+     */
+    @Bean
+    public WebClient upstreamWebClient(final UpstreamHttpClientConfig config,
+                                       final ConnectionProvider upstreamConnectionProvider,
+                                       final ObjectProvider<LoopResources> upstreamLoopResources) {
+        final LoopResources loopResources = upstreamLoopResources.getIfAvailable(HttpResources::get);
+        final HttpClient httpClient = HttpClient.create(upstreamConnectionProvider)
+                .keepAlive(config.getKeepAlive())
+                .tcpConfiguration(tcpClient -> tcpClient
+                        .runOn(loopResources)
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectTimeout()));
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public UpstreamHealthChecker upstreamHealthChecker(final UpstreamHttpClientConfig config) {
+        return new UpstreamHealthChecker(config.getHealthCheckInterval(), config.getHealthCheckTimeout(),
+                config.getOutlierConsecutiveErrors(), config.getOutlierEjectionTime());
+    }
+
+    @Bean
+    public Plugin routePlugin(final WebClient upstreamWebClient, final UpstreamHealthChecker upstreamHealthChecker,
+                              final UpstreamHttpClientConfig config) {
+        final RetryBudget retryBudget = new RetryBudget(config.getRetryBudgetRatio(), config.getRetryBudgetMinRetries());
+        return new RoutePlugin(zookeeperCacheManager, upstreamCacheManager, upstreamWebClient,
+                retryBudget, upstreamHealthChecker);
+    }
+
+
+    @Bean
+    @ConfigurationProperties(prefix = "gateway.ratelimiter")
+    public RateLimiterConfig rateLimiterConfig() {
+        return new RateLimiterConfig();
+    }
+
+    /**
+     * where hybrid rules lease their tokens: the redis of {@code spring.redis}, or this node alone
+     * when redis leases are turned off or no redis is auto-configured.
+     *
+     * @param config        rate limiter config
+     * @param redisTemplate the auto-configured redis template
+     * @return token lease source
+     */
+    @Bean
+    public TokenLeaseSource tokenLeaseSource(final RateLimiterConfig config,
+                                             final ObjectProvider<ReactiveStringRedisTemplate> redisTemplate) {
+        final ReactiveStringRedisTemplate template = redisTemplate.getIfAvailable();
+        if (Boolean.TRUE.equals(config.getRedisLease()) && Objects.nonNull(template)) {
+            return new RedisTokenLeaseSource(template);
+        }
+        return new InMemoryTokenLeaseSource(config.getLocalMaxBuckets(), config.getLocalIdleTimeout());
+    }
+
+    /**
+     * the rate limiter plugin.
+     *
+     * @param config      rate limiter config
+     * @param leaseSource token lease source of the hybrid rules
+     * @return rate limiter plugin
+     */
+    @Bean
+    public Plugin rateLimiterPlugin(final RateLimiterConfig config, final TokenLeaseSource leaseSource) {
+        final LocalRateLimiter localRateLimiter =
+                new LocalRateLimiter(config.getLocalMaxBuckets(), config.getLocalIdleTimeout());
+        final Map<RateLimiterModeEnum, RateLimiter> rateLimiters = new EnumMap<>(RateLimiterModeEnum.class);
+        rateLimiters.put(RateLimiterModeEnum.LOCAL, localRateLimiter);
+        rateLimiters.put(RateLimiterModeEnum.HYBRID, new HybridRateLimiter(leaseSource, localRateLimiter,
+                config.getLeaseTime(), config.getLeaseRefillRatio(),
+                config.getLocalMaxBuckets(), config.getLocalIdleTimeout()));
+        return new RateLimiterPlugin(zookeeperCacheManager, rateLimiters);
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "gateway.cache")
+    public ResponseCacheConfig responseCacheConfig() {
+        return new ResponseCacheConfig();
     }
 
+    @Bean
+    public Plugin responseCachePlugin(final ResponseCacheConfig config) {
+        final ResponseCache responseCache = new ResponseCache(config.getMaxBytes(), config.getMaxAge());
+        return new ResponseCachePlugin(zookeeperCacheManager, responseCache, config.getMaxEntryBytes(),
+                Duration.ofMillis(config.getCoalesceTimeout()));
+    }
+
+    /**
+     * the request coalescing plugin, its counters and collapse ratio are published when metrics are enabled.
+     *
+     * @param meterRegistry meter registry
+     * @return request coalescing plugin
+     */
+    @Bean
+    public Plugin requestCoalescingPlugin(final ObjectProvider<MeterRegistry> meterRegistry) {
+        final RequestCoalescingPlugin plugin = new RequestCoalescingPlugin(zookeeperCacheManager);
+        meterRegistry.ifAvailable(registry -> {
+            FunctionCounter.builder("gateway.coalesce.requests", plugin, RequestCoalescingPlugin::getRequests)
+                    .register(registry);
+            FunctionCounter.builder("gateway.coalesce.collapsed", plugin, RequestCoalescingPlugin::getCollapsed)
+                    .register(registry);
+            FunctionCounter.builder("gateway.coalesce.fallbacks", plugin, RequestCoalescingPlugin::getFallbacks)
+                    .register(registry);
+            Gauge.builder("gateway.coalesce.collapse.ratio", plugin, RequestCoalescingPlugin::getCollapseRatio)
+                    .register(registry);
+        });
+        return plugin;
+    }
 
     @Bean
     public Plugin responsePlugin() {
@@ -77,6 +253,13 @@ public class GatewayConfiguration {
         return new GatewayWebHandler(plugins);
     }
 
+    @Bean
+    public PluginSwitchListener pluginSwitchListener(final GatewayWebHandler gatewayWebHandler, final ZkClient zkClient) {
+        final PluginSwitchListener listener = new PluginSwitchListener(gatewayWebHandler);
+        listener.subscribe(zkClient);
+        return listener;
+    }
+
 
 
     @Bean
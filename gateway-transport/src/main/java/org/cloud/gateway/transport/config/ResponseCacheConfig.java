@@ -0,0 +1,31 @@
+package org.cloud.gateway.transport.config;
+
+import lombok.Data;
+
+/**
+ * settings of the response cache plugin.
+ * bodies are kept in pooled direct buffers, outside the heap.
+ */
+@Data
+public class ResponseCacheConfig {
+
+    /**
+     * total body bytes kept, least recently used responses are evicted past it.
+     */
+    private Long maxBytes = 64L * 1024 * 1024;
+
+    /**
+     * largest body kept, bigger responses are passed through uncached.
+     */
+    private Integer maxEntryBytes = 1024 * 1024;
+
+    /**
+     * longest a response is kept, whatever its cache headers say, in millis.
+     */
+    private Long maxAge = 3600000L;
+
+    /**
+     * how long a request waits for an identical one already fetching the response, in millis.
+     */
+    private Long coalesceTimeout = 3000L;
+}
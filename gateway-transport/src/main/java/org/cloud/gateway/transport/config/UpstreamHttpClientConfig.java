@@ -0,0 +1,71 @@
+package org.cloud.gateway.transport.config;
+
+import lombok.Data;
+
+/**
+ * settings of the http client the divide plugin proxies with.
+ * connections are pooled per upstream address, every pool has its own limits.
+ */
+@Data
+public class UpstreamHttpClientConfig {
+
+    /**
+     * max connections to one upstream.
+     */
+    private Integer maxConnections = 500;
+
+    /**
+     * how long a request waits for a free connection of its upstream, in millis.
+     */
+    private Long acquireTimeout = 3000L;
+
+    /**
+     * connect timeout, in millis.
+     */
+    private Integer connectTimeout = 3000;
+
+    /**
+     * whether connections are kept alive and reused between requests.
+     */
+    private Boolean keepAlive = true;
+
+    /**
+     * run the client on the event loops of the server, so a proxied request never hops threads.
+     */
+    private Boolean shareEventLoop = true;
+
+    /**
+     * worker threads of the client event loops, only used when they are not shared with the server.
+     */
+    private Integer workerCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * retries and hedged requests allowed per request, across all upstreams.
+     */
+    private Double retryBudgetRatio = 0.2D;
+
+    /**
+     * retries always allowed, however few requests there are.
+     */
+    private Integer retryBudgetMinRetries = 10;
+
+    /**
+     * how often every upstream is probed, in millis.
+     */
+    private Long healthCheckInterval = 5000L;
+
+    /**
+     * connect timeout of a probe, in millis.
+     */
+    private Integer healthCheckTimeout = 3000;
+
+    /**
+     * failed requests in a row that eject an upstream.
+     */
+    private Integer outlierConsecutiveErrors = 5;
+
+    /**
+     * how long an ejected upstream gets no traffic, in millis.
+     */
+    private Long outlierEjectionTime = 30000L;
+}
@@ -10,7 +10,6 @@ import static com.netflix.zuul.filters.FilterType.ENDPOINT;
 import static com.netflix.zuul.filters.FilterType.INBOUND;
 
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.concurrent.ThreadSafe;
@@ -21,9 +20,7 @@ import org.slf4j.LoggerFactory;
 import com.netflix.config.CachedDynamicIntProperty;
 import com.netflix.spectator.impl.Preconditions;
 import com.netflix.zuul.ExecutionStatus;
-import com.netflix.zuul.FilterUsageNotifier;
 import com.netflix.zuul.context.Debug;
-import com.netflix.zuul.context.SessionContext;
 import com.netflix.zuul.exception.ZuulException;
 import com.netflix.zuul.filters.FilterError;
 import com.netflix.zuul.filters.FilterSyncType;
@@ -54,8 +51,7 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
     private final FilterUsageNotifier usageNotifier;
     private final FilterRunner<O, ? extends ZuulMessage> nextStage;
 
-    private final String RUNNING_FILTER_IDX_SESSION_CTX_KEY;
-    private final String AWAITING_BODY_FLAG_SESSION_CTX_KEY;
+    private final FilterType filterType;
     private static final Logger LOG = LoggerFactory.getLogger(BaseZuulFilterRunner.class);
 
     private static final CachedDynamicIntProperty FILTER_EXCESSIVE_EXEC_TIME = new CachedDynamicIntProperty("zuul.filters.excessive.execTime", 500);
@@ -64,8 +60,7 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
     protected BaseZuulFilterRunner(FilterType filterType, FilterUsageNotifier usageNotifier, FilterRunner<O, ?> nextStage) {
         this.usageNotifier = Preconditions.checkNotNull(usageNotifier, "filter usage notifier");
         this.nextStage = nextStage;
-        this.RUNNING_FILTER_IDX_SESSION_CTX_KEY = filterType + "RunningFilterIndex";
-        this.AWAITING_BODY_FLAG_SESSION_CTX_KEY = filterType + "IsAwaitingBody";
+        this.filterType = filterType;
     }
 
     public static final ChannelHandlerContext getChannelHandlerContext(final ZuulMessage mesg) {
@@ -77,73 +72,74 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
         return nextStage;
     }
 
-    protected final AtomicInteger initRunningFilterIndex(I zuulMesg) {
-        final AtomicInteger idx = new AtomicInteger(0);
-        zuulMesg.getContext().put(RUNNING_FILTER_IDX_SESSION_CTX_KEY, idx);
-        return idx;
+    protected final void initRunningFilterIndex(I zuulMesg) {
+        zuulMesg.getContext().setFilterIndex(filterType, 0);
     }
 
-    protected final AtomicInteger getRunningFilterIndex(I zuulMesg) {
-        final SessionContext ctx = zuulMesg.getContext();
-        return (AtomicInteger) Preconditions.checkNotNull(ctx.get(RUNNING_FILTER_IDX_SESSION_CTX_KEY), "runningFilterIndex");
+    protected final int getRunningFilterIndex(I zuulMesg) {
+        return zuulMesg.getContext().getFilterIndex(filterType);
+    }
+
+    protected final int incrementRunningFilterIndex(I zuulMesg) {
+        return zuulMesg.getContext().incrementFilterIndex(filterType);
     }
 
     protected final boolean isFilterAwaitingBody(I zuulMesg) {
-        return zuulMesg.getContext().containsKey(AWAITING_BODY_FLAG_SESSION_CTX_KEY);
+        return zuulMesg.getContext().isFilterAwaitingBody(filterType);
     }
 
     protected final void setFilterAwaitingBody(I zuulMesg, boolean flag) {
-        if (flag) {
-            zuulMesg.getContext().put(AWAITING_BODY_FLAG_SESSION_CTX_KEY, Boolean.TRUE);
-        }
-        else {
-            zuulMesg.getContext().remove(AWAITING_BODY_FLAG_SESSION_CTX_KEY);
-        }
+        zuulMesg.getContext().setFilterAwaitingBody(filterType, flag);
     }
 
     protected final void invokeNextStage(final O zuulMesg, final HttpContent chunk) {
+        final boolean traced = FilterTracing.isTraced(zuulMesg);
         if (nextStage != null) {
-            PerfMark.startTask(getClass().getName(), "invokeNextStageChunk");
+            FilterTracing.startTask(traced, getClass().getName(), "invokeNextStageChunk");
             try {
                 addPerfMarkTags(zuulMesg);
                 nextStage.filter(zuulMesg, chunk);
             } finally {
-                PerfMark.stopTask(getClass().getName(), "invokeNextStageChunk");
+                FilterTracing.stopTask(traced, getClass().getName(), "invokeNextStageChunk");
             }
         } else {
             //Next stage is Netty channel handler
-            PerfMark.startTask(getClass().getName(), "fireChannelReadChunk");
+            FilterTracing.startTask(traced, getClass().getName(), "fireChannelReadChunk");
             try {
                 addPerfMarkTags(zuulMesg);
                 getChannelHandlerContext(zuulMesg).fireChannelRead(chunk);
             } finally {
-                PerfMark.stopTask(getClass().getName(), "fireChannelReadChunk");
+                FilterTracing.stopTask(traced, getClass().getName(), "fireChannelReadChunk");
             }
         }
     }
 
     protected final void invokeNextStage(final O zuulMesg) {
+        final boolean traced = FilterTracing.isTraced(zuulMesg);
         if (nextStage != null) {
-            PerfMark.startTask(getClass().getName(), "invokeNextStage");
+            FilterTracing.startTask(traced, getClass().getName(), "invokeNextStage");
             try {
                 addPerfMarkTags(zuulMesg);
                 nextStage.filter(zuulMesg);
             } finally {
-                PerfMark.stopTask(getClass().getName(), "invokeNextStage");
+                FilterTracing.stopTask(traced, getClass().getName(), "invokeNextStage");
             }
         } else {
             //Next stage is Netty channel handler
-            PerfMark.startTask(getClass().getName(), "fireChannelRead");
+            FilterTracing.startTask(traced, getClass().getName(), "fireChannelRead");
             try {
                 addPerfMarkTags(zuulMesg);
                 getChannelHandlerContext(zuulMesg).fireChannelRead(zuulMesg);
             } finally {
-                PerfMark.stopTask(getClass().getName(), "fireChannelRead");
+                FilterTracing.stopTask(traced, getClass().getName(), "fireChannelRead");
             }
         }
     }
 
     protected final void addPerfMarkTags(ZuulMessage inMesg) {
+        if (!FilterTracing.isTraced(inMesg)) {
+            return;
+        }
         HttpRequestInfo req = null;
         if (inMesg instanceof HttpRequestInfo) {
             req = (HttpRequestInfo) inMesg;
@@ -164,7 +160,8 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
         final ZuulMessage snapshot = inMesg.getContext().debugRouting() ? inMesg.clone() : null;
         FilterChainResumer resumer = null;
 
-        PerfMark.startTask(filter.filterName(), "filter");
+        final boolean traced = FilterTracing.isTraced(inMesg);
+        FilterTracing.startTask(traced, filter.filterName(), "filter");
         try {
             addPerfMarkTags(inMesg);
             ExecutionStatus filterRunStatus = null;
@@ -173,13 +170,13 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
                 filterRunStatus = SKIPPED;
             }
 
-            PerfMark.startTask(filter.filterName(), "shouldSkipFilter");
+            FilterTracing.startTask(traced, filter.filterName(), "shouldSkipFilter");
             try {
                 if (shouldSkipFilter(inMesg, filter)) {
                     filterRunStatus = SKIPPED;
                 }
             } finally {
-              PerfMark.stopTask(filter.filterName(), "shouldSkipFilter");
+              FilterTracing.stopTask(traced, filter.filterName(), "shouldSkipFilter");
             }
 
             if (filter.isDisabled()) {
@@ -208,30 +205,31 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
             if (filter.getSyncType() == FilterSyncType.SYNC) {
                 final SyncZuulFilter<I, O> syncFilter = (SyncZuulFilter) filter;
                 final O outMesg;
-                PerfMark.startTask(filter.filterName(), "apply");
+                FilterTracing.startTask(traced, filter.filterName(), "apply");
                 try {
                     addPerfMarkTags(inMesg);
                     outMesg = syncFilter.apply(inMesg);
                 } finally {
-                  PerfMark.stopTask(filter.filterName(), "apply");
+                  FilterTracing.stopTask(traced, filter.filterName(), "apply");
                 }
                 recordFilterCompletion(SUCCESS, filter, startTime, inMesg, snapshot);
                 return (outMesg != null) ? outMesg : filter.getDefaultOutput(inMesg);
             }
 
             // async filter
-            PerfMark.startTask(filter.filterName(), "applyAsync");
+            FilterTracing.startTask(traced, filter.filterName(), "applyAsync");
             try {
-                final Link nettyToSchedulerLink = PerfMark.linkOut();
+                final Link nettyToSchedulerLink = traced ? PerfMark.linkOut() : null;
                 filter.incrementConcurrency();
-                resumer = new FilterChainResumer(inMesg, filter, snapshot, startTime);
+                usageNotifier.onConcurrencyIncremented(filter);
+                resumer = new FilterChainResumer(inMesg, filter, snapshot, startTime, traced);
                 filter.applyAsync(inMesg)
                         .doOnSubscribe(() -> {
-                            PerfMark.startTask(filter.filterName(), "onSubscribeAsync");
+                            FilterTracing.startTask(traced, filter.filterName(), "onSubscribeAsync");
                             try {
-                                PerfMark.linkIn(nettyToSchedulerLink);
+                                FilterTracing.linkIn(traced, nettyToSchedulerLink);
                             } finally {
-                              PerfMark.stopTask(filter.filterName(), "onSubscribeAsync");
+                              FilterTracing.stopTask(traced, filter.filterName(), "onSubscribeAsync");
                             }
                         })
                         .doOnNext(resumer.onNextStarted(nettyToSchedulerLink))
@@ -241,7 +239,7 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
                         .doOnUnsubscribe(resumer::decrementConcurrency)
                         .subscribe(resumer);
             } finally {
-              PerfMark.stopTask(filter.filterName(), "applyAsync");
+              FilterTracing.stopTask(traced, filter.filterName(), "applyAsync");
             }
 
             return null;  //wait for the async filter to finish
@@ -255,7 +253,7 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
             recordFilterCompletion(FAILED, filter, startTime, inMesg, snapshot);
             return outMesg;
         } finally {
-          PerfMark.stopTask(filter.filterName(), "filter");
+          FilterTracing.stopTask(traced, filter.filterName(), "filter");
         }
     }
 
@@ -326,10 +324,10 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
         // Record the execution summary in context.
         switch (status) {
             case FAILED:
-                zuulCtx.addFilterExecutionSummary(filter.filterName(), FAILED.name(), execTimeMs);
+                zuulCtx.addFilterExecutionSummary(filter.filterName(), FAILED, execTimeNs);
                 break;
             case SUCCESS:
-                zuulCtx.addFilterExecutionSummary(filter.filterName(), SUCCESS.name(), execTimeMs);
+                zuulCtx.addFilterExecutionSummary(filter.filterName(), SUCCESS, execTimeNs);
                 if (startSnapshot != null) {
                     //debugRouting == true
                     Debug.addRoutingDebug(zuulCtx, "Filter {" + filter.filterName() + " TYPE:" + filter.filterType().toString()
@@ -344,7 +342,7 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
         LOG.debug("Filter {} completed with status {}, UUID {}", filter.filterName(), status.name(),
                 zuulMesg.getContext().getUUID());
         // Notify configured listener.
-        usageNotifier.notify(filter, status);
+        usageNotifier.notify(filter, status, execTimeNs);
     }
 
 
@@ -382,6 +380,7 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
         private final I inMesg;
         private final ZuulFilter<I, O> filter;
         private final long startTime;
+        private final boolean traced;
         private ZuulMessage snapshot;
         private AtomicBoolean concurrencyDecremented;
 
@@ -390,33 +389,35 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
         private final AtomicReference<Link> onCompletedLinkOut = new AtomicReference<>();
 
         public FilterChainResumer(
-                I inMesg, ZuulFilter<I, O> filter, ZuulMessage snapshot, long startTime) {
+                I inMesg, ZuulFilter<I, O> filter, ZuulMessage snapshot, long startTime, boolean traced) {
             this.inMesg = Preconditions.checkNotNull(inMesg, "input message");
             this.filter = Preconditions.checkNotNull(filter, "filter");
             this.snapshot = snapshot;
             this.startTime = startTime;
+            this.traced = traced;
             this.concurrencyDecremented = new AtomicBoolean(false);
         }
 
         void decrementConcurrency() {
             if (concurrencyDecremented.compareAndSet(false, true)) {
                 filter.decrementConcurrency();
+                usageNotifier.onConcurrencyDecremented(filter);
             }
         }
 
         @Override
         public void onNext(O outMesg) {
             boolean stopped = false;
-            PerfMark.startTask(filter.filterName(), "onNextAsync");
+            FilterTracing.startTask(traced, filter.filterName(), "onNextAsync");
             try {
-                PerfMark.linkIn(onNextLinkOut.get());
+                FilterTracing.linkIn(traced, onNextLinkOut.get());
                 addPerfMarkTags(inMesg);
                 recordFilterCompletion(SUCCESS, filter, startTime, inMesg, snapshot);
                 if (outMesg == null) {
                     outMesg = filter.getDefaultOutput(inMesg);
                 }
                 stopped = true;
-                PerfMark.stopTask(filter.filterName(), "onNextAsync");
+                FilterTracing.stopTask(traced, filter.filterName(), "onNextAsync");
                 resumeInBindingContext(outMesg, filter.filterName());
             }
             catch (Exception e) {
@@ -424,16 +425,16 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
                 handleException(inMesg, filter.filterName(), e);
             } finally {
                 if (!stopped) {
-                    PerfMark.stopTask(filter.filterName(), "onNextAsync");
+                    FilterTracing.stopTask(traced, filter.filterName(), "onNextAsync");
                 }
             }
         }
 
         @Override
         public void onError(Throwable ex) {
-            PerfMark.startTask(filter.filterName(), "onErrorAsync");
+            FilterTracing.startTask(traced, filter.filterName(), "onErrorAsync");
             try {
-                PerfMark.linkIn(onErrorLinkOut.get());
+                FilterTracing.linkIn(traced, onErrorLinkOut.get());
                 decrementConcurrency();
                 recordFilterCompletion(FAILED, filter, startTime, inMesg, snapshot);
                 final O outMesg = handleFilterException(inMesg, filter, ex);
@@ -442,50 +443,56 @@ public abstract class BaseZuulFilterRunner<I extends ZuulMessage, O extends Zuul
             catch (Exception e) {
                 handleException(inMesg, filter.filterName(), e);
             } finally {
-              PerfMark.stopTask(filter.filterName(), "onErrorAsync");            }
+              FilterTracing.stopTask(traced, filter.filterName(), "onErrorAsync");            }
         }
 
         @Override
         public void onCompleted() {
-            PerfMark.startTask(filter.filterName(), "onCompletedAsync");
+            FilterTracing.startTask(traced, filter.filterName(), "onCompletedAsync");
             try {
-                PerfMark.linkIn(onCompletedLinkOut.get( ));
+                FilterTracing.linkIn(traced, onCompletedLinkOut.get());
                 decrementConcurrency();
             } finally {
-              PerfMark.stopTask(filter.filterName(), "onCompletedAsync");
+              FilterTracing.stopTask(traced, filter.filterName(), "onCompletedAsync");
             }
         }
 
         private Action1<O> onNextStarted(Link onNextLinkIn) {
             return o -> {
-                PerfMark.startTask(filter.filterName(), "onNext");
+                FilterTracing.startTask(traced, filter.filterName(), "onNext");
                 try {
-                    PerfMark.linkIn(onNextLinkIn);
-                    onNextLinkOut.compareAndSet(null, PerfMark.linkOut());
+                    FilterTracing.linkIn(traced, onNextLinkIn);
+                    if (traced) {
+                        onNextLinkOut.compareAndSet(null, PerfMark.linkOut());
+                    }
                 } finally {
-                    PerfMark.stopTask(filter.filterName(), "onNext");                }
+                    FilterTracing.stopTask(traced, filter.filterName(), "onNext");                }
             };
         }
 
         private Action1<Throwable> onErrorStarted(Link onErrorLinkIn) {
             return t -> {
-                PerfMark.startTask(filter.filterName(), "onError");
+                FilterTracing.startTask(traced, filter.filterName(), "onError");
                 try {
-                    PerfMark.linkIn(onErrorLinkIn);
-                    onErrorLinkOut.compareAndSet(null, PerfMark.linkOut());
+                    FilterTracing.linkIn(traced, onErrorLinkIn);
+                    if (traced) {
+                        onErrorLinkOut.compareAndSet(null, PerfMark.linkOut());
+                    }
                 } finally {
-                    PerfMark.stopTask(filter.filterName(), "onError");                }
+                    FilterTracing.stopTask(traced, filter.filterName(), "onError");                }
             };
         }
 
         private Action0 onCompletedStarted(Link onCompletedLinkIn) {
             return () -> {
-                PerfMark.startTask(filter.filterName(), "onCompleted");
+                FilterTracing.startTask(traced, filter.filterName(), "onCompleted");
                 try {
-                    PerfMark.linkIn(onCompletedLinkIn);
-                    onCompletedLinkOut.compareAndSet(null, PerfMark.linkOut());
+                    FilterTracing.linkIn(traced, onCompletedLinkIn);
+                    if (traced) {
+                        onCompletedLinkOut.compareAndSet(null, PerfMark.linkOut());
+                    }
                 } finally {
-                    PerfMark.stopTask(filter.filterName(), "onCompleted");                }
+                    FilterTracing.stopTask(traced, filter.filterName(), "onCompleted");                }
             };
         }
     }
@@ -24,7 +24,6 @@ import com.netflix.servo.DefaultMonitorRegistry;
 import com.netflix.servo.monitor.BasicCounter;
 import com.netflix.servo.monitor.MonitorConfig;
 import com.netflix.zuul.context.CommonContextKeys;
-import com.netflix.zuul.context.SessionContext;
 import io.netty.channel.Channel;
 import io.netty.util.AttributeKey;
 
@@ -0,0 +1,95 @@
+package org.cloud.gateway.transport.netty;
+
+import java.util.Arrays;
+
+import com.netflix.zuul.ExecutionStatus;
+
+/**
+ * Execution history of the filters run for one request.
+ *
+ * Each execution is one entry of a primitive array, the status ordinal in the top byte and the execution time in
+ * nanos below it, next to the filter's own name. Nothing is formatted while filters run; the
+ * {@code name[STATUS][Xms]} text is only built when the summary is asked for.
+ *
+ * NOTE: Not threadsafe, owned by a {@link SessionContext}.
+ */
+public final class FilterExecutions {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int STATUS_SHIFT = 56;
+    private static final long NANOS_MASK = (1L << STATUS_SHIFT) - 1;
+    private static final ExecutionStatus[] STATUSES = ExecutionStatus.values();
+
+    private String[] filterNames;
+    private long[] records;
+    private int size;
+
+    public FilterExecutions() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private FilterExecutions(int capacity) {
+        this.filterNames = new String[capacity];
+        this.records = new long[capacity];
+    }
+
+    public void add(String filterName, ExecutionStatus status, long execTimeNs) {
+        if (size == records.length) {
+            filterNames = Arrays.copyOf(filterNames, size << 1);
+            records = Arrays.copyOf(records, size << 1);
+        }
+        filterNames[size] = filterName;
+        records[size] = ((long) status.ordinal() << STATUS_SHIFT) | (Math.max(0L, execTimeNs) & NANOS_MASK);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getFilterName(int index) {
+        checkIndex(index);
+        return filterNames[index];
+    }
+
+    public ExecutionStatus getStatus(int index) {
+        checkIndex(index);
+        return STATUSES[(int) (records[index] >>> STATUS_SHIFT)];
+    }
+
+    public long getExecTimeNs(int index) {
+        checkIndex(index);
+        return records[index] & NANOS_MASK;
+    }
+
+    /**
+     * appends the executions as {@code name[STATUS][Xms], ...}
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(filterNames[i]).append('[').append(getStatus(i).name()).append(']')
+                    .append('[').append(getExecTimeNs(i) / 1_000_000L).append("ms]");
+        }
+        return sb;
+    }
+
+    public FilterExecutions copy() {
+        final FilterExecutions copy = new FilterExecutions(Math.max(size, INITIAL_CAPACITY));
+        System.arraycopy(filterNames, 0, copy.filterNames, 0, size);
+        System.arraycopy(records, 0, copy.records, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
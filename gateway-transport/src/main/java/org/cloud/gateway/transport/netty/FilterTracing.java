@@ -0,0 +1,88 @@
+package org.cloud.gateway.transport.netty;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.netflix.config.DynamicPropertyFactory;
+
+import io.perfmark.Link;
+import io.perfmark.PerfMark;
+
+/**
+ * Gate for the PerfMark instrumentation of the filter runners.
+ *
+ * The mode is read once, from {@code zuul.filters.tracing}:
+ * <ul>
+ *     <li>{@code off} (default) - nothing is traced</li>
+ *     <li>{@code sampled} - one request in {@code zuul.filters.tracing.sampleRate} is traced</li>
+ *     <li>{@code all} - every request is traced</li>
+ * </ul>
+ * Both properties land in static finals, so with tracing off {@link #isTraced(ZuulMessage)} is a constant the JIT
+ * folds away together with every task, link and tag guarded by it. Changing the mode needs a restart.
+ */
+public final class FilterTracing {
+
+    private static final String MODE_SAMPLED = "sampled";
+    private static final String MODE_ALL = "all";
+
+    private static final String MODE =
+            DynamicPropertyFactory.getInstance().getStringProperty("zuul.filters.tracing", "off").get();
+    private static final boolean ENABLED = MODE_SAMPLED.equals(MODE) || MODE_ALL.equals(MODE);
+    private static final boolean SAMPLED = MODE_SAMPLED.equals(MODE);
+    private static final int SAMPLE_RATE = Math.max(1,
+            DynamicPropertyFactory.getInstance().getIntProperty("zuul.filters.tracing.sampleRate", 100).get());
+
+    // sampling is decided once per request, so its inbound and outbound sides are traced together
+    private static final SessionContext.Key<Boolean> TRACED = SessionContext.newKey("_perfmark_traced");
+
+    static {
+        if (ENABLED) {
+            PerfMark.setEnabled(true);
+        }
+    }
+
+    private FilterTracing() {
+    }
+
+    /**
+     * @return whether the request the message belongs to is traced
+     */
+    public static boolean isTraced(final ZuulMessage mesg) {
+        if (!ENABLED) {
+            return false;
+        }
+        if (!SAMPLED) {
+            return true;
+        }
+        final SessionContext ctx = mesg.getContext();
+        Boolean traced = ctx.get(TRACED);
+        if (traced == null) {
+            traced = ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+            ctx.set(TRACED, traced);
+        }
+        return traced;
+    }
+
+    public static void startTask(final boolean traced, final String taskName, final String subTaskName) {
+        if (traced) {
+            PerfMark.startTask(taskName, subTaskName);
+        }
+    }
+
+    public static void stopTask(final boolean traced, final String taskName, final String subTaskName) {
+        if (traced) {
+            PerfMark.stopTask(taskName, subTaskName);
+        }
+    }
+
+    public static void linkIn(final boolean traced, final Link link) {
+        if (traced && link != null) {
+            PerfMark.linkIn(link);
+        }
+    }
+
+    public static void event(final boolean traced, final String eventName, final String subEventName) {
+        if (traced) {
+            PerfMark.event(eventName, subEventName);
+        }
+    }
+}
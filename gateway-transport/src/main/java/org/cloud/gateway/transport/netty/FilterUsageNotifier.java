@@ -1,8 +1,31 @@
 package org.cloud.gateway.transport.netty;
 
+import com.netflix.zuul.ExecutionStatus;
+
 /**
  * Created by cjy on 2020/1/6.
  */
 public interface FilterUsageNotifier {
     public void notify(ZuulFilter filter, ExecutionStatus status);
+
+    /**
+     * Notified once a filter has completed, with the time from its start to its completion; for an async filter
+     * that includes the wait for its result. Skipped and disabled filters report the time taken to decide so.
+     * Defaults to {@link #notify(ZuulFilter, ExecutionStatus)}.
+     */
+    default void notify(ZuulFilter filter, ExecutionStatus status, long execTimeNs) {
+        notify(filter, status);
+    }
+
+    /**
+     * Notified when an async filter takes a slot of its concurrency limit.
+     */
+    default void onConcurrencyIncremented(ZuulFilter filter) {
+    }
+
+    /**
+     * Notified when an async filter gives its concurrency slot back.
+     */
+    default void onConcurrencyDecremented(ZuulFilter filter) {
+    }
 }
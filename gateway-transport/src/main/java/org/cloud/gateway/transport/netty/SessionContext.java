@@ -6,8 +6,9 @@ package org.cloud.gateway.transport.netty;
  * Time: 6:45 PM
  */
 
-import com.netflix.config.DynamicPropertyFactory;
+import com.netflix.zuul.ExecutionStatus;
 import com.netflix.zuul.filters.FilterError;
+import com.netflix.zuul.filters.FilterType;
 import com.netflix.zuul.message.http.HttpResponseMessage;
 import com.netflix.zuul.stats.Timings;
 import com.netflix.zuul.util.DeepCopy;
@@ -15,17 +16,38 @@ import com.netflix.zuul.util.DeepCopy;
 import java.io.NotSerializableException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents the context between client and origin server for the duration of the dedicated connection/session
  * between them. But we're currently still only modelling single request/response pair per session.
  *
+ * Values registered up front through {@link #newKey(String)} live in a per request slot array and are read and
+ * written through their {@link Key} by index. Any other name falls back to a map that is only allocated once such
+ * a name is first stored. The {@link Map} methods see both: a string naming a registered key resolves to its slot,
+ * so existing string keyed callers keep working while hot paths switch to typed keys.
+ *
+ * The filter executions, event properties and filter errors are only allocated on first use.
+ *
  * NOTE: Not threadsafe, and not intended to be used concurrently.
  */
-public class SessionContext extends HashMap<String, Object> implements Cloneable
+public class SessionContext extends AbstractMap<String, Object> implements Cloneable
 {
-    private static final int INITIAL_SIZE =
-            DynamicPropertyFactory.getInstance().getIntProperty("com.netflix.zuul.context.SessionContext.initialSize", 60).get();
+    private static final ConcurrentMap<String, Key<?>> KEYS = new ConcurrentHashMap<>();
+    private static volatile Key<?>[] keysBySlot = new Key<?>[0];
+
+    private static final Key<String> KEY_UUID = newKey("_uuid");
+    private static final Key<String> KEY_VIP = newKey("routeVIP");
+    private static final Key<String> KEY_ENDPOINT = newKey("_endpoint");
+    private static final Key<HttpResponseMessage> KEY_STATIC_RESPONSE = newKey("_static_response");
+    private static final Key<Throwable> KEY_ERROR = newKey("_error");
+    private static final Key<String> KEY_ERROR_ENDPOINT = newKey("_error-endpoint");
+    private static final Key<URL> KEY_ROUTE_HOST = newKey("routeHost");
+    private static final Key<Integer> KEY_ORIGIN_REPORTED_DURATION = newKey("_originReportedDuration");
+
+    private static final Key<Map<String, Object>> KEY_EVENT_PROPS = newKey("eventProperties");
+    private static final Key<List<FilterError>> KEY_FILTER_ERRORS = newKey("_filter_errors");
 
     private boolean brownoutMode = false;
     private boolean shouldStopFilterProcessing = false;
@@ -36,27 +58,179 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
     private boolean debugRequestHeadersOnly = false;
     private boolean cancelled = false;
 
-    private Timings timings = new Timings();
+    // filter chain cursors, only touched from the channel's event loop
+    private int inboundFilterIndex;
+    private int outboundFilterIndex;
+    private int endpointFilterIndex;
+    private int awaitingBodyStages;
 
+    private Timings timings;
+    private FilterExecutions filterExecutions;
 
-    private static final String KEY_UUID = "_uuid";
-    private static final String KEY_VIP = "routeVIP";
-    private static final String KEY_ENDPOINT = "_endpoint";
-    private static final String KEY_STATIC_RESPONSE = "_static_response";
-
-    private static final String KEY_EVENT_PROPS = "eventProperties";
-    private static final String KEY_FILTER_ERRORS = "_filter_errors";
-    private static final String KEY_FILTER_EXECS = "_filter_executions";
+    private Object[] slots;
+    private HashMap<String, Object> overflow;
 
     public SessionContext()
     {
-        // Use a higher than default initial capacity for the hashmap as we generally have more than the default
-        // 16 entries.
-        super(INITIAL_SIZE);
+        slots = new Object[keysBySlot.length];
+    }
+
+    /**
+     * Registers a key, or returns the key already registered under the name. Keys are meant to be held in
+     * static finals; every context created afterwards reserves a slot for them.
+     *
+     * @param name the name the key is also visible under through the {@link Map} methods
+     * @return the key
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Key<T> newKey(String name)
+    {
+        Key<?> key = KEYS.get(name);
+        if (key == null) {
+            synchronized (KEYS) {
+                key = KEYS.get(name);
+                if (key == null) {
+                    final Key<?>[] registered = keysBySlot;
+                    key = new Key<>(name, registered.length);
+                    final Key<?>[] grown = Arrays.copyOf(registered, registered.length + 1);
+                    grown[key.slot] = key;
+                    keysBySlot = grown;
+                    KEYS.put(name, key);
+                }
+            }
+        }
+        return (Key<T>) key;
+    }
+
+    /**
+     * @return the value stored under the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key<T> key)
+    {
+        final int slot = key.slot;
+        return slot < slots.length ? (T) slots[slot] : null;
+    }
+
+    /**
+     * stores the value under the key. a null value removes it
+     *
+     * @return the previous value, or null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T set(Key<T> key, T value)
+    {
+        final int slot = key.slot;
+        if (slot >= slots.length) {
+            if (value == null) {
+                return null;
+            }
+            // the key was registered after this context was created
+            slots = Arrays.copyOf(slots, keysBySlot.length);
+        }
+        final T previous = (T) slots[slot];
+        slots[slot] = value;
+        return previous;
+    }
+
+    /**
+     * @return the removed value, or null
+     */
+    public <T> T remove(Key<T> key)
+    {
+        return set(key, null);
+    }
+
+    public boolean has(Key<?> key)
+    {
+        return get(key) != null;
+    }
+
+    @Override
+    public Object get(Object name)
+    {
+        final Key<?> key = keyOf(name);
+        if (key != null) {
+            return get(key);
+        }
+        return overflow == null ? null : overflow.get(name);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object put(String name, Object value)
+    {
+        final Key<Object> key = (Key<Object>) keyOf(name);
+        if (key != null) {
+            return set(key, value);
+        }
+        if (overflow == null) {
+            overflow = new HashMap<>();
+        }
+        return overflow.put(name, value);
+    }
+
+    @Override
+    public Object remove(Object name)
+    {
+        final Key<?> key = keyOf(name);
+        if (key != null) {
+            return remove(key);
+        }
+        return overflow == null ? null : overflow.remove(name);
+    }
+
+    @Override
+    public boolean containsKey(Object name)
+    {
+        final Key<?> key = keyOf(name);
+        if (key != null) {
+            return has(key);
+        }
+        return overflow != null && overflow.containsKey(name);
+    }
+
+    @Override
+    public int size()
+    {
+        int size = overflow == null ? 0 : overflow.size();
+        for (Object value : slots) {
+            if (value != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(slots, null);
+        overflow = null;
+    }
+
+    /**
+     * A snapshot of the slots and the string keyed entries; changes to the context are not reflected in it.
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet()
+    {
+        final Map<String, Object> entries = new LinkedHashMap<>();
+        final Key<?>[] registered = keysBySlot;
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (slots[slot] != null) {
+                entries.put(registered[slot].name, slots[slot]);
+            }
+        }
+        if (overflow != null) {
+            entries.putAll(overflow);
+        }
+        return Collections.unmodifiableMap(entries).entrySet();
+    }
 
-        put(KEY_FILTER_EXECS, new StringBuilder());
-        put(KEY_EVENT_PROPS, new HashMap<String, Object>());
-        put(KEY_FILTER_ERRORS, new ArrayList<FilterError>());
+    private static Key<?> keyOf(Object name)
+    {
+        return name instanceof String ? KEYS.get(name) : null;
     }
 
     /**
@@ -67,7 +241,15 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
     @Override
     public SessionContext clone()
     {
-        return (SessionContext) super.clone();
+        try {
+            final SessionContext clone = (SessionContext) super.clone();
+            clone.slots = slots.clone();
+            clone.overflow = overflow == null ? null : new HashMap<>(overflow);
+            clone.filterExecutions = filterExecutions == null ? null : filterExecutions.copy();
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
     }
 
     public String getString(String key)
@@ -136,34 +318,43 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
         copy.debugRouting = debugRouting;
         copy.debugRequest = debugRequest;
         copy.debugRequestHeadersOnly = debugRequestHeadersOnly;
+        copy.inboundFilterIndex = inboundFilterIndex;
+        copy.outboundFilterIndex = outboundFilterIndex;
+        copy.endpointFilterIndex = endpointFilterIndex;
+        copy.awaitingBodyStages = awaitingBodyStages;
         copy.timings = timings;
+        copy.filterExecutions = filterExecutions == null ? null : filterExecutions.copy();
 
-        Iterator<String> it = keySet().iterator();
-        String key = it.next();
-        while (key != null) {
-            Object orig = get(key);
-            try {
-                Object copyValue = DeepCopy.copy(orig);
-                if (copyValue != null) {
-                    copy.set(key, copyValue);
-                } else {
-                    copy.set(key, orig);
-                }
-            } catch (NotSerializableException e) {
-                copy.set(key, orig);
-            }
-            if (it.hasNext()) {
-                key = it.next();
-            } else {
-                key = null;
+        final Key<?>[] registered = keysBySlot;
+        copy.slots = new Object[Math.max(slots.length, registered.length)];
+        for (int slot = 0; slot < slots.length; slot++) {
+            copy.slots[slot] = deepCopy(slots[slot]);
+        }
+        if (overflow != null) {
+            copy.overflow = new HashMap<>();
+            for (Entry<String, Object> entry : overflow.entrySet()) {
+                copy.set(entry.getKey(), deepCopy(entry.getValue()));
             }
         }
         return copy;
     }
 
+    private static Object deepCopy(Object orig)
+    {
+        if (orig == null) {
+            return null;
+        }
+        try {
+            Object copyValue = DeepCopy.copy(orig);
+            return copyValue != null ? copyValue : orig;
+        } catch (NotSerializableException e) {
+            return orig;
+        }
+    }
+
     public String getUUID()
     {
-        return getString(KEY_UUID);
+        return get(KEY_UUID);
     }
     public void setUUID(String uuid)
     {
@@ -174,7 +365,7 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
         set(KEY_STATIC_RESPONSE, response);
     }
     public HttpResponseMessage getStaticResponse() {
-        return (HttpResponseMessage) get(KEY_STATIC_RESPONSE);
+        return get(KEY_STATIC_RESPONSE);
     }
 
     /**
@@ -183,7 +374,7 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
      * @return a set throwable
      */
     public Throwable getError() {
-        return (Throwable) get("_error");
+        return get(KEY_ERROR);
 
     }
 
@@ -193,15 +384,15 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
      * @param th
      */
     public void setError(Throwable th) {
-        put("_error", th);
+        set(KEY_ERROR, th);
 
     }
 
     public String getErrorEndpoint() {
-        return (String) get("_error-endpoint");
+        return get(KEY_ERROR_ENDPOINT);
     }
     public void setErrorEndpoint(String name) {
-        put("_error-endpoint", name);
+        set(KEY_ERROR_ENDPOINT, name);
     }
 
     /**
@@ -259,7 +450,7 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
      * removes "routeHost" key
      */
     public void removeRouteHost() {
-        remove("routeHost");
+        remove(KEY_ROUTE_HOST);
     }
 
     /**
@@ -268,31 +459,40 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
      * @param routeHost a URL
      */
     public void setRouteHost(URL routeHost) {
-        set("routeHost", routeHost);
+        set(KEY_ROUTE_HOST, routeHost);
     }
 
     /**
      * @return "routeHost" URL
      */
     public URL getRouteHost() {
-        return (URL) get("routeHost");
+        return get(KEY_ROUTE_HOST);
     }
 
     /**
-     * appends filter name and status to the filter execution history for the
+     * appends filter name, status and execution time to the filter execution history for the
      * current request
      */
-    public void addFilterExecutionSummary(String name, String status, long time) {
-        StringBuilder sb = getFilterExecutionSummary();
-        if (sb.length() > 0) sb.append(", ");
-        sb.append(name).append('[').append(status).append(']').append('[').append(time).append("ms]");
+    public void addFilterExecutionSummary(String name, ExecutionStatus status, long execTimeNs) {
+        if (filterExecutions == null) {
+            filterExecutions = new FilterExecutions();
+        }
+        filterExecutions.add(name, status, execTimeNs);
+    }
+
+    /**
+     * @return the filter execution history for the current request, or null if no filter has completed yet
+     */
+    public FilterExecutions getFilterExecutions() {
+        return filterExecutions;
     }
 
     /**
-     * @return String that represents the filter execution history for the current request
+     * @return String that represents the filter execution history for the current request, rendered on each call
      */
     public StringBuilder getFilterExecutionSummary() {
-        return (StringBuilder) get(KEY_FILTER_EXECS);
+        final StringBuilder sb = new StringBuilder();
+        return filterExecutions == null ? sb : filterExecutions.appendTo(sb);
     }
 
     public boolean shouldSendErrorResponse() {
@@ -353,7 +553,7 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
      * @return
      */
     public String getRouteVIP() {
-        return (String) get(KEY_VIP);
+        return get(KEY_VIP);
     }
 
     /**
@@ -365,12 +565,12 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
 
     public void setEndpoint(String endpoint)
     {
-        put(KEY_ENDPOINT, endpoint);
+        set(KEY_ENDPOINT, endpoint);
     }
 
     public String getEndpoint()
     {
-        return (String) get(KEY_ENDPOINT);
+        return get(KEY_ENDPOINT);
     }
 
     public void setEventProperty(String key, Object value) {
@@ -378,32 +578,103 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
     }
 
     public Map<String, Object> getEventProperties() {
-        return (Map<String, Object>) this.get(KEY_EVENT_PROPS);
+        Map<String, Object> eventProperties = get(KEY_EVENT_PROPS);
+        if (eventProperties == null) {
+            eventProperties = new HashMap<>();
+            set(KEY_EVENT_PROPS, eventProperties);
+        }
+        return eventProperties;
     }
 
     public List<FilterError> getFilterErrors() {
-        return (List<FilterError>) get(KEY_FILTER_ERRORS);
+        List<FilterError> filterErrors = get(KEY_FILTER_ERRORS);
+        if (filterErrors == null) {
+            filterErrors = new ArrayList<>();
+            set(KEY_FILTER_ERRORS, filterErrors);
+        }
+        return filterErrors;
     }
 
     public Timings getTimings()
     {
+        if (timings == null) {
+            timings = new Timings();
+        }
         return timings;
     }
 
     public void setOriginReportedDuration(int duration)
     {
-        put("_originReportedDuration", duration);
+        set(KEY_ORIGIN_REPORTED_DURATION, duration);
     }
 
     public int getOriginReportedDuration()
     {
-        Object value = get("_originReportedDuration");
+        Integer value = get(KEY_ORIGIN_REPORTED_DURATION);
         if (value != null) {
-            return (Integer) value;
+            return value;
         }
         return -1;
     }
 
+    /**
+     * @return index of the filter currently running in the given stage of the filter chain
+     */
+    public int getFilterIndex(FilterType stage) {
+        switch (stage) {
+            case INBOUND:
+                return inboundFilterIndex;
+            case OUTBOUND:
+                return outboundFilterIndex;
+            default:
+                return endpointFilterIndex;
+        }
+    }
+
+    public void setFilterIndex(FilterType stage, int index) {
+        switch (stage) {
+            case INBOUND:
+                inboundFilterIndex = index;
+                break;
+            case OUTBOUND:
+                outboundFilterIndex = index;
+                break;
+            default:
+                endpointFilterIndex = index;
+        }
+    }
+
+    /**
+     * moves the given stage on to its next filter
+     *
+     * @return the new filter index
+     */
+    public int incrementFilterIndex(FilterType stage) {
+        switch (stage) {
+            case INBOUND:
+                return ++inboundFilterIndex;
+            case OUTBOUND:
+                return ++outboundFilterIndex;
+            default:
+                return ++endpointFilterIndex;
+        }
+    }
+
+    /**
+     * @return whether a filter of the given stage is waiting for the whole body to be buffered
+     */
+    public boolean isFilterAwaitingBody(FilterType stage) {
+        return (awaitingBodyStages & (1 << stage.ordinal())) != 0;
+    }
+
+    public void setFilterAwaitingBody(FilterType stage, boolean awaiting) {
+        if (awaiting) {
+            awaitingBodyStages |= 1 << stage.ordinal();
+        } else {
+            awaitingBodyStages &= ~(1 << stage.ordinal());
+        }
+    }
+
     public boolean isCancelled() {
         return cancelled;
     }
@@ -411,4 +682,30 @@ public class SessionContext extends HashMap<String, Object> implements Cloneable
     public void cancel() {
         this.cancelled = true;
     }
-}
\ No newline at end of file
+
+    /**
+     * A session context key, resolved to a slot index when it is registered.
+     */
+    public static final class Key<T>
+    {
+        private final String name;
+        private final int slot;
+
+        private Key(String name, int slot)
+        {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        public String name()
+        {
+            return name;
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+}
@@ -11,8 +11,6 @@ import com.google.common.base.Strings;
 import com.netflix.config.DynamicStringProperty;
 import com.netflix.spectator.impl.Preconditions;
 import com.netflix.zuul.FilterLoader;
-import com.netflix.zuul.FilterUsageNotifier;
-import com.netflix.zuul.context.SessionContext;
 import com.netflix.zuul.filters.Endpoint;
 import com.netflix.zuul.filters.FilterType;
 import com.netflix.zuul.filters.SyncZuulFilterAdapter;
@@ -29,7 +27,6 @@ import com.netflix.zuul.netty.filter.ZuulEndPointRunner;
 import com.netflix.zuul.netty.server.MethodBinding;
 
 import io.netty.handler.codec.http.HttpContent;
-import io.perfmark.PerfMark;
 
 @ThreadSafe
 public class ZuulEndPointRunner extends BaseZuulFilterRunner<HttpRequestMessage, HttpResponseMessage> {
@@ -60,15 +57,16 @@ public class ZuulEndPointRunner extends BaseZuulFilterRunner<HttpRequestMessage,
 
     @Override
     public void filter(final HttpRequestMessage zuulReq) {
+        final boolean traced = FilterTracing.isTraced(zuulReq);
         if (zuulReq.getContext().isCancelled()) {
-            PerfMark.event(getClass().getName(), "filterCancelled");
+            FilterTracing.event(traced, getClass().getName(), "filterCancelled");
             zuulReq.disposeBufferedBody();
             logger.debug("Request was cancelled, UUID {}", zuulReq.getContext().getUUID());
             return;
         }
 
         final String endpointName = getEndPointName(zuulReq.getContext());
-        PerfMark.startTask(getClass().getName(), "filter");
+        FilterTracing.startTask(traced, getClass().getName(), "filter");
         try {
             Preconditions.checkNotNull(zuulReq, "input message");
             addPerfMarkTags(zuulReq);
@@ -87,20 +85,21 @@ public class ZuulEndPointRunner extends BaseZuulFilterRunner<HttpRequestMessage,
         catch (Exception ex) {
             handleException(zuulReq, endpointName, ex);
         } finally {
-            PerfMark.stopTask(getClass().getName(), "filter");
+            FilterTracing.stopTask(traced, getClass().getName(), "filter");
         }
     }
 
     @Override
     protected void resume(final HttpResponseMessage zuulMesg) {
-        PerfMark.startTask(getClass().getSimpleName(), "resume");
+        final boolean traced = FilterTracing.isTraced(zuulMesg);
+        FilterTracing.startTask(traced, getClass().getSimpleName(), "resume");
         try {
             if (zuulMesg.getContext().isCancelled()) {
                 return;
             }
             invokeNextStage(zuulMesg);
         } finally {
-            PerfMark.stopTask(getClass().getSimpleName(), "resume");
+            FilterTracing.stopTask(traced, getClass().getSimpleName(), "resume");
         }
     }
 
@@ -112,7 +111,8 @@ public class ZuulEndPointRunner extends BaseZuulFilterRunner<HttpRequestMessage,
         }
 
         String endpointName = "-";
-        PerfMark.startTask(getClass().getName(), "filterChunk");
+        final boolean traced = FilterTracing.isTraced(zuulReq);
+        FilterTracing.startTask(traced, getClass().getName(), "filterChunk");
         try {
             addPerfMarkTags(zuulReq);
             ZuulFilter<HttpRequestMessage, HttpResponseMessage> endpoint = Preconditions.checkNotNull(
@@ -138,7 +138,7 @@ public class ZuulEndPointRunner extends BaseZuulFilterRunner<HttpRequestMessage,
         catch (Exception ex) {
             handleException(zuulReq, endpointName, ex);
         } finally {
-            PerfMark.stopTask(getClass().getName(), "filterChunk");
+            FilterTracing.stopTask(traced, getClass().getName(), "filterChunk");
         }
     }
 
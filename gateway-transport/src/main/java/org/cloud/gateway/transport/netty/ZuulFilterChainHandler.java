@@ -18,7 +18,6 @@ import com.google.common.base.Preconditions;
 import com.netflix.netty.common.HttpLifecycleChannelHandler;
 import com.netflix.netty.common.HttpRequestReadTimeoutEvent;
 import com.netflix.netty.common.HttpLifecycleChannelHandler.CompleteEvent;
-import com.netflix.zuul.context.SessionContext;
 import com.netflix.zuul.filters.ZuulFilter;
 import com.netflix.zuul.filters.endpoint.ProxyEndpoint;
 import com.netflix.zuul.message.Headers;
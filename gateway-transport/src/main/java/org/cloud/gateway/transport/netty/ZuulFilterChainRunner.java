@@ -1,11 +1,8 @@
 package org.cloud.gateway.transport.netty;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 import javax.annotation.concurrent.ThreadSafe;
 
 import io.netty.handler.codec.http.HttpContent;
-import io.perfmark.PerfMark;
 
 @ThreadSafe
 public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilterRunner<T, T> {
@@ -23,33 +20,35 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
 
     @Override
     public void filter(final T inMesg) {
-        PerfMark.startTask(getClass().getSimpleName(), "filter");
+        final boolean traced = FilterTracing.isTraced(inMesg);
+        FilterTracing.startTask(traced, getClass().getSimpleName(), "filter");
         try {
             addPerfMarkTags(inMesg);
-            runFilters(inMesg, initRunningFilterIndex(inMesg));
+            initRunningFilterIndex(inMesg);
+            runFilters(inMesg);
         } finally {
-            PerfMark.stopTask(getClass().getSimpleName(), "filter");
+            FilterTracing.stopTask(traced, getClass().getSimpleName(), "filter");
         }
     }
 
     @Override
     protected void resume(final T inMesg) {
-        PerfMark.startTask(getClass().getSimpleName(), "resume");
+        final boolean traced = FilterTracing.isTraced(inMesg);
+        FilterTracing.startTask(traced, getClass().getSimpleName(), "resume");
         try {
-            final AtomicInteger runningFilterIdx = getRunningFilterIndex(inMesg);
-            runningFilterIdx.incrementAndGet();
-            runFilters(inMesg, runningFilterIdx);
+            incrementRunningFilterIndex(inMesg);
+            runFilters(inMesg);
         } finally {
-            PerfMark.stopTask(getClass().getSimpleName(), "resume");
+            FilterTracing.stopTask(traced, getClass().getSimpleName(), "resume");
         }
     }
 
-    private final void runFilters(final T mesg, final AtomicInteger runningFilterIdx) {
+    private final void runFilters(final T mesg) {
         T inMesg = mesg;
         String filterName = "-";
         try {
             Preconditions.checkNotNull(mesg, "Input message");
-            int i = runningFilterIdx.get();
+            int i = getRunningFilterIndex(mesg);
 
             while (i < filters.length) {
                 final ZuulFilter<T, T> filter = filters[i];
@@ -59,7 +58,7 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
                     return; //either async filter or waiting for the message body to be buffered
                 }
                 inMesg = outMesg;
-                i = runningFilterIdx.incrementAndGet();
+                i = incrementRunningFilterIndex(mesg);
             }
 
             //Filter chain has reached its end, pass result to the next stage
@@ -73,13 +72,13 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
     @Override
     public void filter(T inMesg, HttpContent chunk) {
         String filterName = "-";
-        PerfMark.startTask(getClass().getName(), "filterChunk");
+        final boolean traced = FilterTracing.isTraced(inMesg);
+        FilterTracing.startTask(traced, getClass().getName(), "filterChunk");
         try {
             addPerfMarkTags(inMesg);
             Preconditions.checkNotNull(inMesg, "input message");
 
-            final AtomicInteger runningFilterIdx = getRunningFilterIndex(inMesg);
-            final int limit = runningFilterIdx.get();
+            final int limit = getRunningFilterIndex(inMesg);
             for (int i = 0; i < limit; i++) {
                 final ZuulFilter<T, T> filter = filters[i];
                 filterName = filter.filterName();
@@ -126,14 +125,14 @@ public class ZuulFilterChainRunner<T extends ZuulMessage> extends BaseZuulFilter
 
                 if (isAwaitingBody && inMesg.hasCompleteBody()) {
                     //whole body has arrived, resume filter chain
-                    runFilters(inMesg, runningFilterIdx);
+                    runFilters(inMesg);
                 }
             }
         }
         catch (Exception ex) {
             handleException(inMesg, filterName, ex);
         } finally {
-            PerfMark.stopTask(getClass().getName(), "filterChunk");
+            FilterTracing.stopTask(traced, getClass().getName(), "filterChunk");
         }
     }
 
@@ -2,7 +2,6 @@ package org.cloud.gateway.transport.netty;
 
 import javax.annotation.Nullable;
 
-import com.netflix.zuul.context.SessionContext;
 import com.netflix.zuul.filters.ZuulFilter;
 import com.netflix.zuul.message.Headers;
 import com.netflix.zuul.message.ZuulMessage;
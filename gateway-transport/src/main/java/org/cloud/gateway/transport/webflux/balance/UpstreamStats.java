@@ -0,0 +1,174 @@
+package org.cloud.gateway.transport.webflux.balance;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * in-flight requests, peak ewma latency and p95 latency of one upstream, fed by the divide plugin.
+ *
+ * <p>Stats are keyed by upstream url, so they survive an upstream list being replaced, and are dropped after
+ * an upstream has not been used for a while. Every update is a single atomic operation or a CAS loop on one
+ * word, there is no lock on the request path.
+ *
+ * <p>A failed request feeds the latency average a penalty of at least the request timeout, so an upstream
+ * failing fast does not look fast; it is left out of the p95 estimate, which only follows answered requests.
+ * An upstream starts from {@value #INITIAL_RTT_MILLIS} millis instead of nothing, so a new upstream is not
+ * handed every request until its first answers come back.
+ */
+public final class UpstreamStats {
+
+    /**
+     * decay time of the latency average.
+     */
+    private static final long DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * relative step of the p95 estimate.
+     */
+    private static final double QUANTILE_STEP = 0.05D;
+
+    /**
+     * latency average of an upstream that has not answered yet.
+     */
+    private static final long INITIAL_RTT_MILLIS = 30L;
+
+    private static final LoadingCache<String, UpstreamStats> STATS = CacheBuilder.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build(CacheLoader.from(upstreamUrl -> new UpstreamStats()));
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * {@code double} bits of the latency average in nanos.
+     */
+    private final AtomicLong ewma =
+            new AtomicLong(Double.doubleToLongBits(TimeUnit.MILLISECONDS.toNanos(INITIAL_RTT_MILLIS)));
+
+    private final AtomicLong stamp = new AtomicLong(System.nanoTime());
+
+    /**
+     * {@code double} bits of the running p95 latency estimate in nanos.
+     */
+    private final AtomicLong p95 = new AtomicLong(Double.doubleToLongBits(0D));
+
+    private UpstreamStats() {
+    }
+
+    /**
+     * acquire the stats of an upstream.
+     *
+     * @param divideUpstream upstream
+     * @return stats
+     */
+    public static UpstreamStats of(final DivideUpstream divideUpstream) {
+        return STATS.getUnchecked(String.valueOf(divideUpstream.getUpstreamUrl()));
+    }
+
+    /**
+     * a request to the upstream starts.
+     *
+     * @return start time in nanos, to hand back to {@linkplain #onSuccess(long)} or {@linkplain #onError(long, long)}
+     */
+    public long begin() {
+        active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * a request to the upstream ends, however it ended.
+     */
+    public void end() {
+        active.decrementAndGet();
+    }
+
+    /**
+     * the upstream answered, the elapsed time is a latency sample.
+     *
+     * @param start value returned by {@linkplain #begin()}
+     */
+    public void onSuccess(final long start) {
+        final long now = System.nanoTime();
+        final long rtt = now - start;
+        observe(rtt, now);
+        observeQuantile(rtt);
+    }
+
+    /**
+     * the request failed, the latency average takes the penalty unless the request took even longer.
+     *
+     * @param start   value returned by {@linkplain #begin()}
+     * @param penalty latency charged for the failure, in nanos
+     */
+    public void onError(final long start, final long penalty) {
+        final long now = System.nanoTime();
+        observe(Math.max(now - start, penalty), now);
+    }
+
+    /**
+     * requests to the upstream in flight.
+     *
+     * @return in-flight count
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * load of the upstream, the latency average times the requests it would have with one more.
+     *
+     * @return cost
+     */
+    public double getCost() {
+        return Double.longBitsToDouble(ewma.get()) * (active.get() + 1);
+    }
+
+    /**
+     * estimated 95th percentile latency, 0 until the upstream has answered.
+     *
+     * @return latency in nanos
+     */
+    public long getP95Nanos() {
+        return (long) Double.longBitsToDouble(p95.get());
+    }
+
+    /**
+     * peak ewma: a sample above the average replaces it, a sample below decays into it
+     * with a weight that depends on the time since the previous sample.
+     */
+    private void observe(final long rtt, final long now) {
+        final long last = stamp.getAndSet(now);
+        final double weight = Math.exp(-(double) Math.max(now - last, 0) / DECAY_NANOS);
+        long current;
+        double next;
+        do {
+            current = ewma.get();
+            final double average = Double.longBitsToDouble(current);
+            next = rtt > average ? rtt : average * weight + rtt * (1D - weight);
+        } while (!ewma.compareAndSet(current, Double.doubleToLongBits(next)));
+    }
+
+    /**
+     * stochastic quantile estimate: step up on a sample above the estimate and down on one below,
+     * with the steps weighted so the estimate settles where 95% of the samples are below it.
+     */
+    private void observeQuantile(final long rtt) {
+        long current;
+        double next;
+        do {
+            current = p95.get();
+            final double estimate = Double.longBitsToDouble(current);
+            if (estimate == 0D) {
+                next = rtt;
+            } else {
+                final double step = Math.max(estimate, 1D) * QUANTILE_STEP;
+                next = rtt > estimate ? estimate + step * 0.95D : Math.max(estimate - step * 0.05D, 1D);
+            }
+        } while (!p95.compareAndSet(current, Double.doubleToLongBits(next)));
+    }
+}
@@ -1,22 +1,84 @@
 package org.cloud.gateway.transport.webflux.balance.factory;
 
+import com.google.common.collect.ImmutableMap;
+import org.cloud.gateway.common.enums.LoadBalanceEnum;
+import org.cloud.gateway.common.utils.SpiLoadFactory;
 import org.cloud.gateway.transport.webflux.balance.LoadBalance;
 import org.cloud.gateway.transport.webflux.balance.spi.RandomLoadBalance;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.ServiceLoader;
-import java.util.stream.StreamSupport;
 
+/**
+ * load balance factory.
+ * every SPI implementation is loaded once, when the class is initialized, into an immutable map keyed by
+ * {@linkplain LoadBalance#algorithm()}; lookups are a map get and always return the same instance.
+ */
+public final class LoadBalanceFactory {
 
-public class LoadBalanceFactory {
+    private static volatile Map<String, LoadBalance> loadBalances = load();
 
-    private static final ServiceLoader<LoadBalance> SERVICE_LOADER =
-            SpiLoadFactory.loadAll(LoadBalance.class);
+    private static volatile LoadBalance defaultLoadBalance = defaultOf(loadBalances);
 
+    private LoadBalanceFactory() {
+    }
 
+    /**
+     * acquire the load balance of an algorithm, random when the algorithm is unknown.
+     *
+     * @param algorithm {@linkplain LoadBalanceEnum} name
+     * @return load balance
+     */
     public static LoadBalance of(final String algorithm) {
-        return StreamSupport.stream(SERVICE_LOADER.spliterator(), false)
-                .filter(service ->
-                        Objects.equals(service.algorithm(),
-                                algorithm)).findFirst().orElse(new RandomLoadBalance());
+        if (Objects.isNull(algorithm)) {
+            return defaultLoadBalance;
+        }
+        final LoadBalance loadBalance = loadBalances.get(algorithm);
+        return Objects.isNull(loadBalance) ? defaultLoadBalance : loadBalance;
+    }
+
+    /**
+     * acquire the load balance of an algorithm, random when it has no implementation.
+     *
+     * @param loadBalanceEnum algorithm
+     * @return load balance
+     */
+    public static LoadBalance of(final LoadBalanceEnum loadBalanceEnum) {
+        return of(loadBalanceEnum.getName());
+    }
+
+    /**
+     * register a load balance, replacing the one registered for the same algorithm.
+     * meant for tests and for implementations that can not be loaded through SPI.
+     *
+     * @param loadBalance load balance
+     */
+    public static synchronized void register(final LoadBalance loadBalance) {
+        final Map<String, LoadBalance> registered = new LinkedHashMap<>(loadBalances);
+        registered.put(loadBalance.algorithm(), loadBalance);
+        loadBalances = ImmutableMap.copyOf(registered);
+        defaultLoadBalance = defaultOf(loadBalances);
+    }
+
+    /**
+     * drop registered load balances and reload the SPI implementations.
+     */
+    public static synchronized void reset() {
+        loadBalances = load();
+        defaultLoadBalance = defaultOf(loadBalances);
+    }
+
+    private static Map<String, LoadBalance> load() {
+        final Map<String, LoadBalance> loaded = new LinkedHashMap<>();
+        for (LoadBalance loadBalance : SpiLoadFactory.loadAll(LoadBalance.class)) {
+            loaded.putIfAbsent(loadBalance.algorithm(), loadBalance);
+        }
+        return ImmutableMap.copyOf(loaded);
+    }
+
+    private static LoadBalance defaultOf(final Map<String, LoadBalance> loadBalances) {
+        final LoadBalance random = loadBalances.get(LoadBalanceEnum.RANDOM.getName());
+        return Objects.isNull(random) ? new RandomLoadBalance() : random;
     }
 }
@@ -0,0 +1,99 @@
+package org.cloud.gateway.transport.webflux.balance.spi;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.enums.LoadBalanceEnum;
+import org.cloud.gateway.transport.webflux.balance.LoadBalance;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * consistent hash load balance.
+ *
+ * <p>Every upstream is placed on a hash ring as a number of virtual nodes, the ring is built once per upstream
+ * list (keyed by list identity, like the round robin schedules) and kept as a sorted array, so a lookup is a
+ * binary search. The key is the {@code ip} argument, which the divide plugin fills with the client ip or the
+ * configured hash header. A request without a key is routed randomly.
+ */
+public class HashLoadBalance implements LoadBalance {
+
+    /**
+     * virtual nodes per upstream.
+     */
+    private static final int VIRTUAL_NODES = 160;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final LoadingCache<List<DivideUpstream>, Ring> rings = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(Ring::new));
+
+    @Override
+    public DivideUpstream select(final List<DivideUpstream> upstreamList, final String ip) {
+        if (upstreamList.size() == 1) {
+            return upstreamList.get(0);
+        }
+        if (StringUtils.isEmpty(ip)) {
+            return upstreamList.get(ThreadLocalRandom.current().nextInt(upstreamList.size()));
+        }
+        return rings.getUnchecked(upstreamList).locate(hash(ip));
+    }
+
+    @Override
+    public String algorithm() {
+        return LoadBalanceEnum.HASH.getName();
+    }
+
+    private static long hash(final String key) {
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static final class Ring {
+
+        private final long[] hashes;
+
+        private final DivideUpstream[] nodes;
+
+        Ring(final List<DivideUpstream> upstreamList) {
+            final int size = upstreamList.size() * VIRTUAL_NODES;
+            final long[] points = new long[size];
+            final int[] owners = new int[size];
+            final Integer[] order = new Integer[size];
+            for (int i = 0; i < upstreamList.size(); i++) {
+                final String url = upstreamList.get(i).getUpstreamUrl();
+                for (int v = 0; v < VIRTUAL_NODES; v++) {
+                    final int point = i * VIRTUAL_NODES + v;
+                    points[point] = hash(url + "#" + v);
+                    owners[point] = i;
+                    order[point] = point;
+                }
+            }
+            Arrays.sort(order, (m, n) -> Long.compare(points[m], points[n]));
+            this.hashes = new long[size];
+            this.nodes = new DivideUpstream[size];
+            for (int i = 0; i < size; i++) {
+                hashes[i] = points[order[i]];
+                nodes[i] = upstreamList.get(owners[order[i]]);
+            }
+        }
+
+        /**
+         * the first node clockwise from the hash.
+         */
+        DivideUpstream locate(final long hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return nodes[index == nodes.length ? 0 : index];
+        }
+    }
+}
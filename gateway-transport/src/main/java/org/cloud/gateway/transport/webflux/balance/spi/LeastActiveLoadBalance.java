@@ -0,0 +1,62 @@
+package org.cloud.gateway.transport.webflux.balance.spi;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.enums.LoadBalanceEnum;
+import org.cloud.gateway.transport.webflux.balance.LoadBalance;
+import org.cloud.gateway.transport.webflux.balance.UpstreamStats;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * least active load balance.
+ * picks the upstream with the fewest requests in flight, ties are broken by weighted random.
+ */
+public class LeastActiveLoadBalance implements LoadBalance {
+
+    @Override
+    public DivideUpstream select(final List<DivideUpstream> upstreamList, final String ip) {
+        final int length = upstreamList.size();
+        if (length == 1) {
+            return upstreamList.get(0);
+        }
+        int leastActive = Integer.MAX_VALUE;
+        final int[] leastIndexes = new int[length];
+        int leastCount = 0;
+        int totalWeight = 0;
+        for (int i = 0; i < length; i++) {
+            final DivideUpstream divideUpstream = upstreamList.get(i);
+            final int active = UpstreamStats.of(divideUpstream).getActive();
+            final int weight = Math.max(divideUpstream.getWeight(), 0);
+            if (active < leastActive) {
+                leastActive = active;
+                leastCount = 0;
+                totalWeight = 0;
+            }
+            if (active == leastActive) {
+                leastIndexes[leastCount++] = i;
+                totalWeight += weight;
+            }
+        }
+        if (leastCount == 1) {
+            return upstreamList.get(leastIndexes[0]);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (totalWeight > 0) {
+            int offset = random.nextInt(totalWeight);
+            for (int i = 0; i < leastCount; i++) {
+                final DivideUpstream divideUpstream = upstreamList.get(leastIndexes[i]);
+                offset -= Math.max(divideUpstream.getWeight(), 0);
+                if (offset < 0) {
+                    return divideUpstream;
+                }
+            }
+        }
+        return upstreamList.get(leastIndexes[random.nextInt(leastCount)]);
+    }
+
+    @Override
+    public String algorithm() {
+        return LoadBalanceEnum.LEAST_ACTIVE.getName();
+    }
+}
@@ -0,0 +1,44 @@
+package org.cloud.gateway.transport.webflux.balance.spi;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.enums.LoadBalanceEnum;
+import org.cloud.gateway.transport.webflux.balance.LoadBalance;
+import org.cloud.gateway.transport.webflux.balance.UpstreamStats;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * peak ewma load balance with the power of two choices.
+ * two distinct upstreams are drawn at random and the one with the lower
+ * {@linkplain UpstreamStats#getCost() cost} per unit of weight wins, so a degraded upstream
+ * quickly stops getting traffic without every request scanning the whole list.
+ */
+public class PeakEwmaLoadBalance implements LoadBalance {
+
+    @Override
+    public DivideUpstream select(final List<DivideUpstream> upstreamList, final String ip) {
+        final int length = upstreamList.size();
+        if (length == 1) {
+            return upstreamList.get(0);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(length);
+        int second = random.nextInt(length - 1);
+        if (second >= first) {
+            second++;
+        }
+        final DivideUpstream one = upstreamList.get(first);
+        final DivideUpstream other = upstreamList.get(second);
+        return cost(one) <= cost(other) ? one : other;
+    }
+
+    private static double cost(final DivideUpstream divideUpstream) {
+        return UpstreamStats.of(divideUpstream).getCost() / Math.max(divideUpstream.getWeight(), 1);
+    }
+
+    @Override
+    public String algorithm() {
+        return LoadBalanceEnum.PEAK_EWMA.getName();
+    }
+}
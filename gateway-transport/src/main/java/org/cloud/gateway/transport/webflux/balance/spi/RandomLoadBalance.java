@@ -1,10 +1,52 @@
 package org.cloud.gateway.transport.webflux.balance.spi;
 
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.enums.LoadBalanceEnum;
+import org.cloud.gateway.transport.webflux.balance.LoadBalance;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
+ * weighted random load balance.
+ * an upstream is picked with a probability proportional to its weight, when every upstream has the
+ * same weight (or no upstream has a positive one) they are picked uniformly.
+ * it keeps no shared state, so it never contends across event loop threads.
+ *
  * Created by cjy on 2020/1/23.
  */
-public class RandomLoadBalance {
-
+public class RandomLoadBalance implements LoadBalance {
 
+    @Override
+    public DivideUpstream select(final List<DivideUpstream> upstreamList, final String ip) {
+        final int length = upstreamList.size();
+        if (length == 1) {
+            return upstreamList.get(0);
+        }
+        int totalWeight = 0;
+        boolean sameWeight = true;
+        for (int i = 0; i < length; i++) {
+            final int weight = Math.max(upstreamList.get(i).getWeight(), 0);
+            totalWeight += weight;
+            if (sameWeight && i > 0 && weight != Math.max(upstreamList.get(i - 1).getWeight(), 0)) {
+                sameWeight = false;
+            }
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (totalWeight > 0 && !sameWeight) {
+            int offset = random.nextInt(totalWeight);
+            for (DivideUpstream divideUpstream : upstreamList) {
+                offset -= Math.max(divideUpstream.getWeight(), 0);
+                if (offset < 0) {
+                    return divideUpstream;
+                }
+            }
+        }
+        return upstreamList.get(random.nextInt(length));
+    }
 
+    @Override
+    public String algorithm() {
+        return LoadBalanceEnum.RANDOM.getName();
+    }
 }
@@ -1,11 +1,118 @@
 package org.cloud.gateway.transport.webflux.balance.spi;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.enums.LoadBalanceEnum;
+import org.cloud.gateway.transport.webflux.balance.LoadBalance;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
+ * smooth weighted round robin load balance.
+ *
+ * <p>The smooth weighted round robin order (the one nginx uses) of an upstream list is computed once,
+ * when the list is first seen, and stored as a fixed schedule. Selecting is then a single atomic increment
+ * of the cursor of that list, so no lock is taken and no per upstream state is updated on the request path.
+ * Schedules are keyed by list identity, a new list from the upstream cache gets a new schedule and the old
+ * one is collected with it.
+ *
  * Created by cjy on 2020/1/23.
  */
-public class RoundRobinLoadBalance {
+public class RoundRobinLoadBalance implements LoadBalance {
+
+    /**
+     * the longest schedule kept, larger weight sums are scaled down to fit.
+     */
+    private static final int MAX_SCHEDULE_LENGTH = 1 << 16;
+
+    private final LoadingCache<List<DivideUpstream>, Schedule> schedules = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(Schedule::new));
+
+    @Override
+    public DivideUpstream select(final List<DivideUpstream> upstreamList, final String ip) {
+        if (upstreamList.size() == 1) {
+            return upstreamList.get(0);
+        }
+        return schedules.getUnchecked(upstreamList).next();
+    }
+
+    @Override
+    public String algorithm() {
+        return LoadBalanceEnum.ROUND_ROBIN.getName();
+    }
+
+    private static final class Schedule {
+
+        private final DivideUpstream[] order;
+
+        private final AtomicLong cursor = new AtomicLong();
+
+        Schedule(final List<DivideUpstream> upstreamList) {
+            this.order = smooth(upstreamList, weights(upstreamList));
+        }
 
+        DivideUpstream next() {
+            return order[(int) ((cursor.getAndIncrement() & Long.MAX_VALUE) % order.length)];
+        }
 
+        /**
+         * non positive weights are left out, unless no upstream has a positive weight,
+         * in which case all upstreams share the same weight.
+         */
+        private static int[] weights(final List<DivideUpstream> upstreamList) {
+            final int[] weights = new int[upstreamList.size()];
+            long total = 0;
+            int divisor = 0;
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = Math.max(upstreamList.get(i).getWeight(), 0);
+                total += weights[i];
+                divisor = gcd(divisor, weights[i]);
+            }
+            if (total == 0) {
+                Arrays.fill(weights, 1);
+                return weights;
+            }
+            total /= divisor;
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= divisor;
+                if (total > MAX_SCHEDULE_LENGTH && weights[i] > 0) {
+                    weights[i] = (int) Math.max(1, (long) weights[i] * MAX_SCHEDULE_LENGTH / total);
+                }
+            }
+            return weights;
+        }
 
+        private static DivideUpstream[] smooth(final List<DivideUpstream> upstreamList, final int[] weights) {
+            int total = 0;
+            for (int weight : weights) {
+                total += weight;
+            }
+            final DivideUpstream[] order = new DivideUpstream[total];
+            final long[] current = new long[weights.length];
+            for (int slot = 0; slot < total; slot++) {
+                int best = -1;
+                for (int i = 0; i < weights.length; i++) {
+                    if (weights[i] == 0) {
+                        continue;
+                    }
+                    current[i] += weights[i];
+                    if (best < 0 || current[i] > current[best]) {
+                        best = i;
+                    }
+                }
+                current[best] -= total;
+                order[slot] = upstreamList.get(best);
+            }
+            return order;
+        }
 
+        private static int gcd(final int a, final int b) {
+            return b == 0 ? a : gcd(b, a % b);
+        }
+    }
 }
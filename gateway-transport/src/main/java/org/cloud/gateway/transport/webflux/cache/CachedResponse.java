@@ -0,0 +1,163 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.cache;
+
+import io.netty.buffer.ByteBuf;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An upstream response held in a pooled direct buffer.
+ *
+ * <p>Every holder (the cache, the request that captured it) owns one reference, the buffer goes back to the
+ * pool when the last one is released. Writing the response hands the server a retained duplicate of the
+ * buffer, so serving never copies the body and a response evicted while being written stays intact.
+ */
+public final class CachedResponse {
+
+    private final HttpStatus status;
+
+    private final HttpHeaders headers;
+
+    private final ByteBuf body;
+
+    private final long storedAt;
+
+    private final long freshUntil;
+
+    private final long staleUntil;
+
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    /**
+     * create a cached response, owned by the caller.
+     *
+     * @param status    response status
+     * @param headers   response headers, not shared with anyone else
+     * @param body      response body
+     * @param freshness how long it may be served
+     */
+    public CachedResponse(final HttpStatus status, final HttpHeaders headers, final ByteBuf body,
+                          final Freshness freshness) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.storedAt = System.currentTimeMillis();
+        this.freshUntil = storedAt + freshness.getTtlMillis();
+        this.staleUntil = freshUntil + freshness.getStaleMillis();
+    }
+
+    /**
+     * take another reference, fails once the body has been released.
+     *
+     * @return true if the reference was taken
+     */
+    public boolean retain() {
+        int current;
+        do {
+            current = refs.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!refs.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * give a reference back, the last one releases the body.
+     */
+    public void release() {
+        if (refs.decrementAndGet() == 0) {
+            body.release();
+        }
+    }
+
+    /**
+     * write this response.
+     *
+     * @param response the response to write to
+     * @return completion of the write, or null if the body has already been released
+     */
+    public Mono<Void> writeTo(final ServerHttpResponse response) {
+        if (!retain()) {
+            return null;
+        }
+        final ByteBuf content;
+        try {
+            content = body.retainedDuplicate();
+        } finally {
+            release();
+        }
+        response.setStatusCode(status);
+        final HttpHeaders responseHeaders = response.getHeaders();
+        headers.forEach((name, values) -> responseHeaders.put(name, new ArrayList<>(values)));
+        responseHeaders.set(HttpHeaders.AGE,
+                String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - storedAt)));
+        return response.writeWith(Mono.just(wrap(response.bufferFactory(), content)));
+    }
+
+    private static DataBuffer wrap(final DataBufferFactory bufferFactory, final ByteBuf content) {
+        if (bufferFactory instanceof NettyDataBufferFactory) {
+            return ((NettyDataBufferFactory) bufferFactory).wrap(content);
+        }
+        try {
+            return bufferFactory.allocateBuffer(content.readableBytes()).write(content.nioBuffer());
+        } finally {
+            content.release();
+        }
+    }
+
+    /**
+     * whether the response is still fresh.
+     *
+     * @param now current time millis
+     * @return true if fresh
+     */
+    public boolean isFresh(final long now) {
+        return now < freshUntil;
+    }
+
+    /**
+     * whether the response may still be served, fresh or within its stale-while-revalidate window.
+     *
+     * @param now current time millis
+     * @return true if usable
+     */
+    public boolean isUsable(final long now) {
+        return now < staleUntil;
+    }
+
+    /**
+     * size of the body.
+     *
+     * @return bytes
+     */
+    public int size() {
+        return body.readableBytes();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.cache;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A response that is not connected to any client, whatever is written to it is released.
+ * Background refreshes run the plugin chain against it through a {@linkplain ResponseCapture}.
+ */
+public final class DetachedServerHttpResponse extends AbstractServerHttpResponse {
+
+    /**
+     * create a detached response.
+     *
+     * @param bufferFactory buffer factory of the exchange being refreshed
+     */
+    public DetachedServerHttpResponse(final DataBufferFactory bufferFactory) {
+        super(bufferFactory);
+    }
+
+    @Override
+    public <T> T getNativeResponse() {
+        throw new IllegalStateException("a detached response has no native response");
+    }
+
+    @Override
+    protected Mono<Void> writeWithInternal(final Publisher<? extends DataBuffer> body) {
+        return Flux.from(body).doOnNext(DataBufferUtils::release).then();
+    }
+
+    @Override
+    protected Mono<Void> writeAndFlushWithInternal(final Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return Flux.from(body).concatMap(chunk -> Flux.from(chunk).doOnNext(DataBufferUtils::release)).then();
+    }
+
+    @Override
+    protected void applyStatusCode() {
+    }
+
+    @Override
+    protected void applyHeaders() {
+    }
+
+    @Override
+    protected void applyCookies() {
+    }
+}
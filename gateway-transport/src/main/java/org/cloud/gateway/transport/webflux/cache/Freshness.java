@@ -0,0 +1,175 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.cache;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.cloud.gateway.common.dto.convert.CacheHandle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a response may be served from the cache, taken from its {@code Cache-Control} header and
+ * falling back to the {@linkplain CacheHandle} of the rule.
+ */
+public final class Freshness {
+
+    private static final String NO_STORE = "no-store";
+
+    private static final String NO_CACHE = "no-cache";
+
+    private static final String PRIVATE = "private";
+
+    private static final String MAX_AGE = "max-age";
+
+    private static final String S_MAXAGE = "s-maxage";
+
+    private static final String STALE_WHILE_REVALIDATE = "stale-while-revalidate";
+
+    private static final String ANY = "*";
+
+    private final long ttlMillis;
+
+    private final long staleMillis;
+
+    /**
+     * create freshness.
+     *
+     * @param ttlMillis   how long the response is fresh
+     * @param staleMillis how long after that it is still served while being refreshed
+     */
+    public Freshness(final long ttlMillis, final long staleMillis) {
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * the freshness of an upstream response, or null if it must not be cached.
+     * only {@code 200} responses without cookies are kept, and only if every header they vary on is part
+     * of the cache key.
+     *
+     * @param status  response status
+     * @param headers response headers
+     * @param handle  cache handle of the rule
+     * @return freshness or null
+     */
+    public static Freshness of(final HttpStatus status, final HttpHeaders headers, final CacheHandle handle) {
+        if (status != HttpStatus.OK || headers.containsKey(HttpHeaders.SET_COOKIE) || !isKeyedBy(headers, handle)) {
+            return null;
+        }
+        long ttl = -1;
+        long maxAge = -1;
+        long stale = -1;
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : StringUtils.split(value, ',')) {
+                final String name = StringUtils.substringBefore(directive, "=").trim().toLowerCase(Locale.ROOT);
+                if (NO_STORE.equals(name) || NO_CACHE.equals(name) || PRIVATE.equals(name)) {
+                    return null;
+                } else if (S_MAXAGE.equals(name)) {
+                    ttl = seconds(directive);
+                } else if (MAX_AGE.equals(name)) {
+                    maxAge = seconds(directive);
+                } else if (STALE_WHILE_REVALIDATE.equals(name)) {
+                    stale = seconds(directive);
+                }
+            }
+        }
+        if (ttl < 0) {
+            ttl = maxAge >= 0 ? maxAge : orZero(handle.getTtl());
+        }
+        if (ttl <= 0) {
+            return null;
+        }
+        if (stale < 0) {
+            stale = orZero(handle.getStaleWhileRevalidate());
+        }
+        return new Freshness(TimeUnit.SECONDS.toMillis(ttl), TimeUnit.SECONDS.toMillis(stale));
+    }
+
+    /**
+     * whether a request must bypass shared caches: it carries credentials, cookies that are not part
+     * of the cache key, or asks for it with {@code Cache-Control}.
+     *
+     * @param headers     request headers
+     * @param varyHeaders request headers that are part of the cache key
+     * @return true if the cache must not be used
+     */
+    public static boolean isBypassed(final HttpHeaders headers, final List<String> varyHeaders) {
+        if (headers.containsKey(HttpHeaders.AUTHORIZATION)) {
+            return true;
+        }
+        if (headers.containsKey(HttpHeaders.COOKIE) && (CollectionUtils.isEmpty(varyHeaders)
+                || varyHeaders.stream().noneMatch(HttpHeaders.COOKIE::equalsIgnoreCase))) {
+            return true;
+        }
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            if (StringUtils.containsIgnoreCase(value, NO_CACHE) || StringUtils.containsIgnoreCase(value, NO_STORE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isKeyedBy(final HttpHeaders headers, final CacheHandle handle) {
+        final List<String> keyed = handle.getVaryHeaders();
+        for (String value : headers.getOrEmpty(HttpHeaders.VARY)) {
+            for (String name : StringUtils.split(value, ',')) {
+                final String header = name.trim();
+                if (ANY.equals(header) || CollectionUtils.isEmpty(keyed)
+                        || keyed.stream().noneMatch(header::equalsIgnoreCase)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long seconds(final String directive) {
+        final String value = StringUtils.strip(StringUtils.substringAfter(directive, "="), " \"");
+        return NumberUtils.toLong(value, -1);
+    }
+
+    private static long orZero(final Integer seconds) {
+        return Objects.isNull(seconds) ? 0 : Math.max(0, seconds);
+    }
+
+    /**
+     * how long the response is fresh, in millis.
+     *
+     * @return ttl
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * how long a stale response is still served while being refreshed, in millis.
+     *
+     * @return stale-while-revalidate window
+     */
+    public long getStaleMillis() {
+        return staleMillis;
+    }
+}
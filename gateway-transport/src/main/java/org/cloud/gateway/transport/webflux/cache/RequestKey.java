@@ -0,0 +1,64 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.cache;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.cloud.gateway.common.dto.zk.RuleZkDTO;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Builds the key identical requests share: rule, method, path, query and the listed request headers.
+ */
+public final class RequestKey {
+
+    private RequestKey() {
+    }
+
+    /**
+     * build the key of a request.
+     *
+     * @param request     the request
+     * @param rule        the rule it matched
+     * @param varyHeaders request headers telling responses apart, may be null
+     * @return key
+     */
+    public static String of(final ServerHttpRequest request, final RuleZkDTO rule, final List<String> varyHeaders) {
+        final StringBuilder key = new StringBuilder(128)
+                .append(rule.getId()).append('\n')
+                .append(request.getMethodValue()).append(' ')
+                .append(request.getURI().getRawPath());
+        final String query = request.getURI().getRawQuery();
+        if (Objects.nonNull(query)) {
+            key.append('?').append(query);
+        }
+        if (CollectionUtils.isNotEmpty(varyHeaders)) {
+            for (String name : varyHeaders) {
+                key.append('\n').append(name).append(':');
+                final List<String> values = request.getHeaders().get(name);
+                if (Objects.nonNull(values)) {
+                    key.append(String.join(",", values));
+                }
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size bounded store of {@linkplain CachedResponse}s.
+ *
+ * <p>Entries are weighed by their body size and evicted least recently used first once {@code maxBytes} is
+ * reached; the store holds a reference to every entry and releases it on eviction. Entries past their
+ * stale-while-revalidate window are dropped when looked up, and none outlives {@code maxAge}.
+ */
+public final class ResponseCache {
+
+    private final Cache<String, CachedResponse> responses;
+
+    /**
+     * create a store.
+     *
+     * @param maxBytes total body bytes kept
+     * @param maxAge   longest an entry is kept, in millis
+     */
+    public ResponseCache(final long maxBytes, final long maxAge) {
+        this.responses = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse response) -> response.size() + key.length())
+                .expireAfterWrite(maxAge, TimeUnit.MILLISECONDS)
+                .removalListener(notification -> {
+                    final CachedResponse response = notification.getValue();
+                    if (Objects.nonNull(response)) {
+                        response.release();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * look up a response that may still be served.
+     *
+     * @param key request key
+     * @param now current time millis
+     * @return the response or null
+     */
+    public CachedResponse get(final String key, final long now) {
+        final CachedResponse response = responses.getIfPresent(key);
+        if (Objects.isNull(response)) {
+            return null;
+        }
+        if (!response.isUsable(now)) {
+            responses.asMap().remove(key, response);
+            return null;
+        }
+        return response;
+    }
+
+    /**
+     * keep a response, replacing the one stored under the key.
+     *
+     * @param key      request key
+     * @param response the response, the store takes its own reference
+     */
+    public void put(final String key, final CachedResponse response) {
+        if (response.retain()) {
+            responses.put(key, response);
+        }
+    }
+}
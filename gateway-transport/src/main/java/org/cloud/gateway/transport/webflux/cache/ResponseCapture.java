@@ -0,0 +1,153 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Passes a response through while copying its body into a pooled direct buffer.
+ *
+ * <p>Whether, and for how long, the response is kept is decided once its status and headers are known,
+ * when the body starts. Bodies growing past {@code maxBytes}, event and json streams and bodies that do not complete
+ * are dropped. The capture completes with the write, once every chunk has been written, and is handed over
+ * as a {@linkplain CachedResponse} owned by the consumer.
+ */
+public final class ResponseCapture extends ServerHttpResponseDecorator {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxBytes;
+
+    private final BiFunction<HttpStatus, HttpHeaders, Freshness> admission;
+
+    private final Consumer<CachedResponse> consumer;
+
+    private Freshness freshness;
+
+    private ByteBuf buffer;
+
+    /**
+     * create a capture.
+     *
+     * @param delegate  the response written to
+     * @param maxBytes  largest body kept
+     * @param admission freshness of the response given its status (null if not set) and headers, null if it is not kept
+     * @param consumer  receives the captured response
+     */
+    public ResponseCapture(final ServerHttpResponse delegate, final int maxBytes,
+                           final BiFunction<HttpStatus, HttpHeaders, Freshness> admission,
+                           final Consumer<CachedResponse> consumer) {
+        super(delegate);
+        this.maxBytes = maxBytes;
+        this.admission = admission;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public Mono<Void> writeWith(final Publisher<? extends DataBuffer> body) {
+        if (!begin()) {
+            return super.writeWith(body);
+        }
+        return super.writeWith(Flux.from(body).doOnNext(this::append)).doFinally(this::end);
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(final Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        final MediaType contentType = getHeaders().getContentType();
+        if (isStreaming(contentType) || !begin()) {
+            return super.writeAndFlushWith(body);
+        }
+        // finish on the write result, the outer publisher may complete before its last chunks are written
+        return super.writeAndFlushWith(Flux.from(body)
+                .map(chunk -> Flux.from(chunk).doOnNext(this::append)))
+                .doFinally(this::end);
+    }
+
+    private static boolean isStreaming(final MediaType contentType) {
+        return Objects.nonNull(contentType) && (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)
+                || MediaType.APPLICATION_STREAM_JSON.isCompatibleWith(contentType));
+    }
+
+    private synchronized boolean begin() {
+        freshness = admission.apply(getStatusCode(), getHeaders());
+        if (Objects.isNull(freshness)) {
+            return false;
+        }
+        final long contentLength = getHeaders().getContentLength();
+        if (contentLength > maxBytes) {
+            return false;
+        }
+        final int initialCapacity = contentLength >= 0 ? (int) contentLength : Math.min(INITIAL_CAPACITY, maxBytes);
+        buffer = PooledByteBufAllocator.DEFAULT.directBuffer(initialCapacity, maxBytes);
+        return true;
+    }
+
+    private synchronized void append(final DataBuffer dataBuffer) {
+        if (Objects.isNull(buffer)) {
+            return;
+        }
+        if (buffer.readableBytes() + dataBuffer.readableByteCount() > maxBytes) {
+            drop();
+            return;
+        }
+        if (dataBuffer instanceof NettyDataBuffer) {
+            final ByteBuf nativeBuffer = ((NettyDataBuffer) dataBuffer).getNativeBuffer();
+            buffer.writeBytes(nativeBuffer, nativeBuffer.readerIndex(), nativeBuffer.readableBytes());
+        } else {
+            buffer.writeBytes(dataBuffer.asByteBuffer());
+        }
+    }
+
+    private synchronized void end(final SignalType signal) {
+        if (Objects.isNull(buffer)) {
+            return;
+        }
+        if (signal != SignalType.ON_COMPLETE) {
+            drop();
+            return;
+        }
+        final HttpHeaders headers = new HttpHeaders();
+        getHeaders().forEach((name, values) -> headers.put(name, new ArrayList<>(values)));
+        final ByteBuf body = buffer;
+        buffer = null;
+        consumer.accept(new CachedResponse(getStatusCode(), headers, body, freshness));
+    }
+
+    private void drop() {
+        buffer.release();
+        buffer = null;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.cache;
+
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * One upstream call that identical requests wait for instead of making their own.
+ *
+ * <p>The leader captures the response and lands the flight, every follower waiting at that moment is handed
+ * the response synchronously and takes its own reference before the leader gives up the capture's one.
+ * Followers give up after a bounded wait, and on a flight that lands empty, and call the upstream themselves.
+ */
+public final class ResponseFlight {
+
+    private final MonoProcessor<CachedResponse> landed = MonoProcessor.create();
+
+    private volatile CachedResponse captured;
+
+    /**
+     * record the captured response, owned by the flight until it lands.
+     *
+     * @param response captured response
+     */
+    public synchronized void capture(final CachedResponse response) {
+        if (Objects.nonNull(captured)) {
+            response.release();
+            return;
+        }
+        captured = response;
+    }
+
+    /**
+     * the captured response, owned by the flight until it lands.
+     *
+     * @return captured response or null
+     */
+    public CachedResponse getCaptured() {
+        return captured;
+    }
+
+    /**
+     * land the flight: hand the capture to the waiting followers and give up the capture's reference.
+     * the flight must have been removed from where new followers find it.
+     */
+    public void land() {
+        final CachedResponse response = captured;
+        if (Objects.isNull(response)) {
+            landed.onComplete();
+            return;
+        }
+        landed.onNext(response);
+        response.release();
+    }
+
+    /**
+     * wait for the flight to land.
+     *
+     * @param timeout longest wait
+     * @return the captured response, empty if nothing was captured in time
+     */
+    public Mono<CachedResponse> await(final Duration timeout) {
+        return landed.timeout(timeout, Mono.empty());
+    }
+
+    /**
+     * answer a follower with the response of the flight, or with the fallback when nothing lands in time.
+     * the follower takes its reference while the flight lands, before the leader releases the capture.
+     *
+     * @param timeout  longest wait
+     * @param response response of the follower
+     * @param fallback the follower's own call
+     * @return {@code Mono<Void>} to indicate when the response is written
+     */
+    public Mono<Void> serve(final Duration timeout, final ServerHttpResponse response,
+                            final Supplier<Mono<Void>> fallback) {
+        return await(timeout)
+                .map(captured -> Optional.ofNullable(captured.writeTo(response)))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(written -> written.orElseGet(fallback));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.cloud.gateway.common.dto.zk.RuleZkDTO;
+import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
+import org.cloud.gateway.common.enums.SelectorTypeEnum;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A selector with its pre-bound matcher and the compiled index of its rules.
+ */
+public final class CompiledSelector {
+
+    private final int ordinal;
+
+    private final SelectorZkDTO selector;
+
+    private final ConditionMatcher matcher;
+
+    private volatile RuleIndex ruleIndex = RuleIndex.EMPTY;
+
+    CompiledSelector(final int ordinal, final SelectorZkDTO selector) {
+        this.ordinal = ordinal;
+        this.selector = selector;
+        this.matcher = compile(selector);
+    }
+
+    private static ConditionMatcher compile(final SelectorZkDTO selector) {
+        if (Objects.equals(selector.getType(), SelectorTypeEnum.CUSTOM_FLOW.getCode())) {
+            if (CollectionUtils.isEmpty(selector.getConditionZkDTOList())) {
+                return ConditionMatcher.NEVER;
+            }
+            return ConditionMatchers.compile(selector.getMatchMode(), selector.getConditionZkDTOList());
+        }
+        return ConditionMatcher.ALWAYS;
+    }
+
+    /**
+     * position of the selector in the plugin selector list.
+     *
+     * @return ordinal
+     */
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * the source selector.
+     *
+     * @return selector
+     */
+    public SelectorZkDTO getSelector() {
+        return selector;
+    }
+
+    /**
+     * match the exchange against the selector conditions.
+     *
+     * @param exchange the current server exchange
+     * @return true if matched
+     */
+    public boolean match(final ServerWebExchange exchange) {
+        return matcher.match(exchange);
+    }
+
+    /**
+     * find the first matching rule, recompiling the rule index when the cached rule list changed.
+     *
+     * @param rules    current rules of this selector
+     * @param exchange the current server exchange
+     * @return matched rule or null
+     */
+    public RuleZkDTO matchRule(final List<RuleZkDTO> rules, final ServerWebExchange exchange) {
+        RuleIndex index = ruleIndex;
+        if (!index.isBuiltFrom(rules)) {
+            index = RuleIndex.build(rules);
+            ruleIndex = index;
+        }
+        return index.match(exchange);
+    }
+}
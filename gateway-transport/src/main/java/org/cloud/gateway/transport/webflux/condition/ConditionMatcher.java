@@ -0,0 +1,47 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * A condition (or a group of conditions) already bound to its param type,
+ * operator and value, ready to be evaluated against an exchange.
+ */
+@FunctionalInterface
+public interface ConditionMatcher {
+
+    /**
+     * matcher that accepts every exchange.
+     */
+    ConditionMatcher ALWAYS = exchange -> true;
+
+    /**
+     * matcher that rejects every exchange.
+     */
+    ConditionMatcher NEVER = exchange -> false;
+
+    /**
+     * match the exchange.
+     *
+     * @param exchange the current server exchange
+     * @return true when the exchange satisfies the condition
+     */
+    boolean match(ServerWebExchange exchange);
+}
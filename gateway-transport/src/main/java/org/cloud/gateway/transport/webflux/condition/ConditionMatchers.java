@@ -0,0 +1,202 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.cloud.gateway.common.constant.Constants;
+import org.cloud.gateway.common.dto.zk.ConditionZkDTO;
+import org.cloud.gateway.common.enums.MatchModeEnum;
+import org.cloud.gateway.common.enums.OperatorEnum;
+import org.cloud.gateway.common.enums.ParamTypeEnum;
+import org.cloud.gateway.common.exception.SoulException;
+import org.cloud.gateway.common.utils.LogUtils;
+import org.cloud.gateway.webflux.request.RequestDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Compiles {@linkplain ConditionZkDTO} lists into {@linkplain ConditionMatcher}s.
+ * The param type, operator and value of every condition are resolved once here,
+ * so evaluating a matcher does no enum lookups and no string parsing.
+ */
+public final class ConditionMatchers {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConditionMatchers.class);
+
+    private ConditionMatchers() {
+    }
+
+    /**
+     * compile a condition list with the given match mode.
+     * an empty {@code and} group matches everything, an empty {@code or} group matches nothing.
+     *
+     * @param matchMode  {@linkplain MatchModeEnum} code
+     * @param conditions the conditions
+     * @return the compiled matcher
+     */
+    public static ConditionMatcher compile(final Integer matchMode, final List<ConditionZkDTO> conditions) {
+        final boolean or = isOr(matchMode);
+        if (CollectionUtils.isEmpty(conditions)) {
+            return or ? ConditionMatcher.NEVER : ConditionMatcher.ALWAYS;
+        }
+        final ConditionMatcher[] matchers = conditions.stream()
+                .map(ConditionMatchers::compile)
+                .toArray(ConditionMatcher[]::new);
+        if (matchers.length == 1) {
+            return matchers[0];
+        }
+        if (or) {
+            return exchange -> {
+                for (ConditionMatcher matcher : matchers) {
+                    if (matcher.match(exchange)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        return exchange -> {
+            for (ConditionMatcher matcher : matchers) {
+                if (!matcher.match(exchange)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * compile a single condition.
+     * a condition that can not be compiled (unsupported param type or operator) never matches.
+     *
+     * @param condition the condition
+     * @return the compiled matcher
+     */
+    public static ConditionMatcher compile(final ConditionZkDTO condition) {
+        if (Objects.isNull(condition)) {
+            return ConditionMatcher.NEVER;
+        }
+        try {
+            final ParamTypeEnum paramType = ParamTypeEnum.getParamTypeEnumByName(condition.getParamType());
+            final OperatorEnum operator = OperatorEnum.getOperatorEnumByAlias(condition.getOperator());
+            final Function<ServerWebExchange, String> resolver = resolver(paramType, condition.getParamName());
+            final Predicate<String> judge = judge(operator, StringUtils.trimToEmpty(condition.getParamValue()));
+            return exchange -> {
+                final String realData = resolver.apply(exchange);
+                return StringUtils.isNotBlank(realData) && judge.test(realData);
+            };
+        } catch (SoulException e) {
+            LogUtils.error(LOGGER, "condition can not be compiled, it will never match :{}", condition::toString);
+            return ConditionMatcher.NEVER;
+        }
+    }
+
+    /**
+     * whether the match mode is {@linkplain MatchModeEnum#OR}, anything else is treated as {@code and}.
+     *
+     * @param matchMode match mode code
+     * @return true if or
+     */
+    public static boolean isOr(final Integer matchMode) {
+        return Objects.nonNull(matchMode) && matchMode == MatchModeEnum.OR.getCode();
+    }
+
+    /**
+     * acquire the host of the client, the same value a {@code host} condition is judged against.
+     *
+     * @param exchange the current server exchange
+     * @return host or null
+     */
+    public static String acquireHost(final ServerWebExchange exchange) {
+        final InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return Objects.isNull(address) ? null : address.getHostString();
+    }
+
+    /**
+     * acquire the ip of the client, the same value an {@code ip} condition is judged against.
+     *
+     * @param exchange the current server exchange
+     * @return ip or null
+     */
+    public static String acquireIp(final ServerWebExchange exchange) {
+        final InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        if (Objects.isNull(address) || Objects.isNull(address.getAddress())) {
+            return null;
+        }
+        return address.getAddress().getHostAddress();
+    }
+
+    private static Function<ServerWebExchange, String> resolver(final ParamTypeEnum paramType, final String paramName) {
+        switch (paramType) {
+            case HEADER:
+                return exchange -> exchange.getRequest().getHeaders().getFirst(paramName);
+            case URI:
+                return exchange -> exchange.getRequest().getURI().getPath();
+            case QUERY:
+                return exchange -> exchange.getRequest().getQueryParams().getFirst(paramName);
+            case HOST:
+                return ConditionMatchers::acquireHost;
+            case IP:
+                return ConditionMatchers::acquireIp;
+            case POST:
+                return postResolver(paramName);
+            default:
+                throw new SoulException(" this  param type can not support!");
+        }
+    }
+
+    private static Function<ServerWebExchange, String> postResolver(final String paramName) {
+        final Field field = StringUtils.isBlank(paramName) ? null : ReflectionUtils.findField(RequestDTO.class, paramName);
+        if (Objects.isNull(field)) {
+            return exchange -> null;
+        }
+        ReflectionUtils.makeAccessible(field);
+        return exchange -> {
+            final RequestDTO requestDTO = exchange.getAttribute(Constants.REQUESTDTO);
+            if (Objects.isNull(requestDTO)) {
+                return null;
+            }
+            final Object value = ReflectionUtils.getField(field, requestDTO);
+            return Objects.isNull(value) ? null : String.valueOf(value);
+        };
+    }
+
+    private static Predicate<String> judge(final OperatorEnum operator, final String paramValue) {
+        switch (operator) {
+            case EQ:
+                return paramValue::equals;
+            case LIKE:
+                return realData -> realData.contains(paramValue);
+            case MATCH:
+                return PathPatterns.of(paramValue);
+            default:
+                throw new SoulException(" this  operator can not support!");
+        }
+    }
+}
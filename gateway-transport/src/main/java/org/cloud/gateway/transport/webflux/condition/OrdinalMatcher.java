@@ -0,0 +1,42 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Matches the entry at a given position of an index, lets {@linkplain UriPrefixTree} verify candidates
+ * without knowing what they are.
+ */
+interface OrdinalMatcher {
+
+    /**
+     * no entry matched.
+     */
+    int NONE = Integer.MAX_VALUE;
+
+    /**
+     * match the entry at the ordinal.
+     *
+     * @param ordinal  entry position
+     * @param exchange the current server exchange
+     * @return true if the entry matches
+     */
+    boolean matchOrdinal(int ordinal, ServerWebExchange exchange);
+}
@@ -0,0 +1,106 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Compiled {@code match} operator patterns.
+ *
+ * <p>The common ant patterns are turned into plain string checks:
+ * <ul>
+ * <li>{@code /a/b} : equals</li>
+ * <li>{@code /a/**} : equals {@code /a} or starts with {@code /a/}</li>
+ * <li>{@code /a/b*} : starts with {@code /a/b} and no further {@code /}</li>
+ * </ul>
+ * everything else, and any path holding an empty segment, goes through {@linkplain AntPathMatcher}.
+ *
+ * <p>Compiled patterns are kept in a bounded cache keyed by the pattern text. A compiled pattern is a pure
+ * function of its text, so an entry can never be stale; conditions changed in zookeeper simply compile to
+ * (or reuse) another entry when the index is rebuilt, and unused ones age out.
+ */
+final class PathPatterns {
+
+    private static final int MAX_CACHED_PATTERNS = 4096;
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private static final String ANY_PATH = "/**";
+
+    private static final String ANY_CHARS = "*";
+
+    private static final String EMPTY_SEGMENT = "//";
+
+    private static final LoadingCache<String, Predicate<String>> PATTERNS = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_PATTERNS)
+            .build(CacheLoader.from(PathPatterns::compile));
+
+    private PathPatterns() {
+    }
+
+    /**
+     * acquire the compiled form of an ant path pattern.
+     *
+     * @param pattern ant path pattern
+     * @return predicate over request paths
+     */
+    static Predicate<String> of(final String pattern) {
+        return PATTERNS.getUnchecked(pattern);
+    }
+
+    private static Predicate<String> compile(final String pattern) {
+        final Predicate<String> fast = literal(pattern);
+        if (Objects.isNull(fast)) {
+            return path -> PATH_MATCHER.match(pattern, path);
+        }
+        return path -> path.contains(EMPTY_SEGMENT) ? PATH_MATCHER.match(pattern, path) : fast.test(path);
+    }
+
+    private static Predicate<String> literal(final String pattern) {
+        if (!hasWildcard(pattern)) {
+            return pattern::equals;
+        }
+        if (pattern.endsWith(ANY_PATH)) {
+            final String base = pattern.substring(0, pattern.length() - ANY_PATH.length());
+            if (!hasWildcard(base)) {
+                final String baseDir = base + "/";
+                return path -> path.equals(base) || path.startsWith(baseDir);
+            }
+            return null;
+        }
+        if (pattern.endsWith(ANY_CHARS)) {
+            final String base = pattern.substring(0, pattern.length() - ANY_CHARS.length());
+            if (!hasWildcard(base)) {
+                return path -> path.startsWith(base) && path.indexOf('/', base.length()) < 0;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasWildcard(final String pattern) {
+        return StringUtils.containsAny(pattern, '*', '?', '{');
+    }
+}
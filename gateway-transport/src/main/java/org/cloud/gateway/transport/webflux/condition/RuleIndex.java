@@ -0,0 +1,135 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.cloud.gateway.common.dto.zk.ConditionZkDTO;
+import org.cloud.gateway.common.dto.zk.RuleZkDTO;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable, compiled view of the rules of one selector.
+ * It remembers the rule list it was built from, a new list coming from zookeeper means a rebuild.
+ * {@code and} rules pinning a uri prefix are looked up through a {@linkplain UriPrefixTree}.
+ */
+public final class RuleIndex implements OrdinalMatcher {
+
+    /**
+     * index that matches nothing.
+     */
+    public static final RuleIndex EMPTY = new RuleIndex(null, new RuleZkDTO[0], new ConditionMatcher[0],
+            new int[0], UriPrefixTree.builder().build());
+
+    private final List<RuleZkDTO> source;
+
+    private final RuleZkDTO[] rules;
+
+    private final ConditionMatcher[] matchers;
+
+    private final int[] unindexed;
+
+    private final UriPrefixTree uris;
+
+    private RuleIndex(final List<RuleZkDTO> source, final RuleZkDTO[] rules, final ConditionMatcher[] matchers,
+                      final int[] unindexed, final UriPrefixTree uris) {
+        this.source = source;
+        this.rules = rules;
+        this.matchers = matchers;
+        this.unindexed = unindexed;
+        this.uris = uris;
+    }
+
+    /**
+     * compile the enabled rules, keeping their order.
+     *
+     * @param rules rules of a selector
+     * @return the rule index
+     */
+    public static RuleIndex build(final List<RuleZkDTO> rules) {
+        final RuleZkDTO[] enabled = rules.stream()
+                .filter(rule -> Objects.nonNull(rule) && Boolean.TRUE.equals(rule.getEnabled()))
+                .toArray(RuleZkDTO[]::new);
+        final ConditionMatcher[] matchers = new ConditionMatcher[enabled.length];
+        final UriPrefixTree.Builder uris = UriPrefixTree.builder();
+        final int[] unindexed = new int[enabled.length];
+        int unindexedCount = 0;
+        for (int i = 0; i < enabled.length; i++) {
+            matchers[i] = ConditionMatchers.compile(enabled[i].getMatchMode(), enabled[i].getConditionZkDTOList());
+            final String prefix = uriPrefix(enabled[i]);
+            if (Objects.isNull(prefix)) {
+                unindexed[unindexedCount++] = i;
+            } else {
+                uris.add(prefix, i);
+            }
+        }
+        return new RuleIndex(rules, enabled, matchers, Arrays.copyOf(unindexed, unindexedCount), uris.build());
+    }
+
+    private static String uriPrefix(final RuleZkDTO rule) {
+        if (ConditionMatchers.isOr(rule.getMatchMode()) || CollectionUtils.isEmpty(rule.getConditionZkDTOList())) {
+            return null;
+        }
+        for (ConditionZkDTO condition : rule.getConditionZkDTOList()) {
+            final String prefix = UriPrefixTree.literalPrefix(condition);
+            if (Objects.nonNull(prefix)) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * whether this index was built from exactly this rule list.
+     *
+     * @param rules rule list from the cache
+     * @return true if the index is up to date
+     */
+    public boolean isBuiltFrom(final List<RuleZkDTO> rules) {
+        return source == rules;
+    }
+
+    /**
+     * find the first rule matching the exchange.
+     *
+     * @param exchange the current server exchange
+     * @return matched rule or null
+     */
+    public RuleZkDTO match(final ServerWebExchange exchange) {
+        int matched = NONE;
+        for (int ordinal : unindexed) {
+            if (matchers[ordinal].match(exchange)) {
+                matched = ordinal;
+                break;
+            }
+        }
+        if (!uris.isEmpty()) {
+            matched = uris.firstMatch(exchange.getRequest().getURI().getPath(), exchange, this, matched);
+        }
+        return matched == NONE ? null : rules[matched];
+    }
+
+    @Override
+    public boolean matchOrdinal(final int ordinal, final ServerWebExchange exchange) {
+        return matchers[ordinal].match(exchange);
+    }
+}
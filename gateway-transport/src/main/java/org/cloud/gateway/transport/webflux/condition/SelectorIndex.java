@@ -0,0 +1,220 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.cloud.gateway.common.dto.zk.ConditionZkDTO;
+import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
+import org.cloud.gateway.common.enums.OperatorEnum;
+import org.cloud.gateway.common.enums.ParamTypeEnum;
+import org.cloud.gateway.common.enums.SelectorTypeEnum;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable, compiled view of the selectors of one plugin.
+ *
+ * <p>Selectors whose {@code and} conditions pin an exact host or header value are bucketed by that value,
+ * those pinning a uri prefix live in a {@linkplain UriPrefixTree}, everything else is scanned in order.
+ * Every selector keeps its position in the source list, so the result is always the first enabled selector
+ * that matches, the same as a full scan.
+ */
+public final class SelectorIndex implements OrdinalMatcher {
+
+    /**
+     * index that matches nothing.
+     */
+    public static final SelectorIndex EMPTY = new SelectorIndex(null, new CompiledSelector[0], new CompiledSelector[0],
+            Collections.emptyMap(), UriPrefixTree.builder().build(), new HeaderBucket[0]);
+
+    private final List<SelectorZkDTO> source;
+
+    private final CompiledSelector[] selectors;
+
+    private final CompiledSelector[] unindexed;
+
+    private final Map<String, CompiledSelector[]> hosts;
+
+    private final UriPrefixTree uris;
+
+    private final HeaderBucket[] headers;
+
+    private SelectorIndex(final List<SelectorZkDTO> source, final CompiledSelector[] selectors,
+                          final CompiledSelector[] unindexed, final Map<String, CompiledSelector[]> hosts,
+                          final UriPrefixTree uris, final HeaderBucket[] headers) {
+        this.source = source;
+        this.selectors = selectors;
+        this.unindexed = unindexed;
+        this.hosts = hosts;
+        this.uris = uris;
+        this.headers = headers;
+    }
+
+    /**
+     * compile the enabled selectors of a plugin.
+     *
+     * @param selectors selectors of a plugin, in match order
+     * @return the selector index
+     */
+    public static SelectorIndex build(final List<SelectorZkDTO> selectors) {
+        final List<CompiledSelector> compiledSelectors = new ArrayList<>();
+        final List<CompiledSelector> unindexed = new ArrayList<>();
+        final Map<String, List<CompiledSelector>> hosts = new HashMap<>();
+        final UriPrefixTree.Builder uris = UriPrefixTree.builder();
+        final Map<String, Map<String, List<CompiledSelector>>> headers = new LinkedHashMap<>();
+        int ordinal = 0;
+        for (SelectorZkDTO selector : selectors) {
+            if (Objects.isNull(selector) || !Boolean.TRUE.equals(selector.getEnabled())) {
+                continue;
+            }
+            final CompiledSelector compiled = new CompiledSelector(ordinal++, selector);
+            compiledSelectors.add(compiled);
+            final ConditionZkDTO key = indexCondition(selector);
+            if (Objects.isNull(key)) {
+                unindexed.add(compiled);
+            } else if (ParamTypeEnum.HOST.getName().equals(key.getParamType())) {
+                hosts.computeIfAbsent(key.getParamValue().trim(), k -> new ArrayList<>()).add(compiled);
+            } else if (ParamTypeEnum.URI.getName().equals(key.getParamType())) {
+                uris.add(UriPrefixTree.literalPrefix(key), compiled.getOrdinal());
+            } else {
+                headers.computeIfAbsent(key.getParamName(), k -> new HashMap<>())
+                        .computeIfAbsent(key.getParamValue().trim(), k -> new ArrayList<>()).add(compiled);
+            }
+        }
+        final HeaderBucket[] headerBuckets = headers.entrySet().stream()
+                .map(e -> new HeaderBucket(e.getKey(), toArrays(e.getValue())))
+                .toArray(HeaderBucket[]::new);
+        return new SelectorIndex(selectors, compiledSelectors.toArray(new CompiledSelector[0]),
+                unindexed.toArray(new CompiledSelector[0]), toArrays(hosts), uris.build(), headerBuckets);
+    }
+
+    /**
+     * an {@code and} selector with an {@code =} condition on host or header, or a {@code =} / {@code match}
+     * condition on uri, can only match requests carrying that value (or uri prefix), so it is safe to look it
+     * up by that value. host is preferred, then uri, then header.
+     */
+    private static ConditionZkDTO indexCondition(final SelectorZkDTO selector) {
+        if (!Objects.equals(selector.getType(), SelectorTypeEnum.CUSTOM_FLOW.getCode())
+                || ConditionMatchers.isOr(selector.getMatchMode())
+                || CollectionUtils.isEmpty(selector.getConditionZkDTOList())) {
+            return null;
+        }
+        ConditionZkDTO uri = null;
+        ConditionZkDTO header = null;
+        for (ConditionZkDTO condition : selector.getConditionZkDTOList()) {
+            if (Objects.isNull(uri) && Objects.nonNull(UriPrefixTree.literalPrefix(condition))) {
+                uri = condition;
+            }
+            if (Objects.isNull(condition) || !OperatorEnum.EQ.getAlias().equals(condition.getOperator())
+                    || StringUtils.isBlank(condition.getParamValue())) {
+                continue;
+            }
+            if (ParamTypeEnum.HOST.getName().equals(condition.getParamType())) {
+                return condition;
+            }
+            if (Objects.isNull(header) && ParamTypeEnum.HEADER.getName().equals(condition.getParamType())
+                    && StringUtils.isNotBlank(condition.getParamName())) {
+                header = condition;
+            }
+        }
+        return Objects.nonNull(uri) ? uri : header;
+    }
+
+    private static Map<String, CompiledSelector[]> toArrays(final Map<String, List<CompiledSelector>> buckets) {
+        final Map<String, CompiledSelector[]> arrays = new HashMap<>(buckets.size() * 2);
+        buckets.forEach((k, v) -> arrays.put(k, v.toArray(new CompiledSelector[0])));
+        return arrays;
+    }
+
+    /**
+     * whether this index was built from exactly this selector list.
+     *
+     * @param selectors selector list from the cache
+     * @return true if the index is up to date
+     */
+    public boolean isBuiltFrom(final List<SelectorZkDTO> selectors) {
+        return source == selectors;
+    }
+
+    /**
+     * find the first selector matching the exchange.
+     *
+     * @param exchange the current server exchange
+     * @return matched selector or null
+     */
+    public CompiledSelector match(final ServerWebExchange exchange) {
+        int matched = firstMatch(unindexed, exchange, NONE);
+        if (!hosts.isEmpty()) {
+            final String host = ConditionMatchers.acquireHost(exchange);
+            if (Objects.nonNull(host)) {
+                matched = firstMatch(hosts.get(host), exchange, matched);
+            }
+        }
+        if (!uris.isEmpty()) {
+            matched = uris.firstMatch(exchange.getRequest().getURI().getPath(), exchange, this, matched);
+        }
+        for (HeaderBucket bucket : headers) {
+            final String value = exchange.getRequest().getHeaders().getFirst(bucket.name);
+            if (Objects.nonNull(value)) {
+                matched = firstMatch(bucket.values.get(value), exchange, matched);
+            }
+        }
+        return matched == NONE ? null : selectors[matched];
+    }
+
+    @Override
+    public boolean matchOrdinal(final int ordinal, final ServerWebExchange exchange) {
+        return selectors[ordinal].match(exchange);
+    }
+
+    private static int firstMatch(final CompiledSelector[] candidates, final ServerWebExchange exchange, final int limit) {
+        if (Objects.isNull(candidates)) {
+            return limit;
+        }
+        for (CompiledSelector candidate : candidates) {
+            if (candidate.getOrdinal() >= limit) {
+                break;
+            }
+            if (candidate.match(exchange)) {
+                return candidate.getOrdinal();
+            }
+        }
+        return limit;
+    }
+
+    private static final class HeaderBucket {
+
+        private final String name;
+
+        private final Map<String, CompiledSelector[]> values;
+
+        HeaderBucket(final String name, final Map<String, CompiledSelector[]> values) {
+            this.name = name;
+            this.values = values;
+        }
+    }
+}
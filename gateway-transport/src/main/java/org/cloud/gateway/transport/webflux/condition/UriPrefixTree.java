@@ -0,0 +1,258 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.apache.commons.lang3.StringUtils;
+import org.cloud.gateway.common.dto.zk.ConditionZkDTO;
+import org.cloud.gateway.common.enums.OperatorEnum;
+import org.cloud.gateway.common.enums.ParamTypeEnum;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Radix tree over the literal prefix of {@code uri} conditions.
+ *
+ * <p>An entry is stored under the part of its pattern before the first wildcard, so walking the request path
+ * down the tree visits exactly the entries that can possibly match it. Candidates are still verified by their
+ * full matcher, in ordinal order, so the tree only prunes and never changes which entry wins.
+ *
+ * <p>Ant patterns ignore empty path segments, a path containing {@code //} may therefore match a pattern it
+ * does not literally start with; such paths fall back to checking every entry of the tree.
+ */
+final class UriPrefixTree {
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final String DOUBLE_SLASH = "//";
+
+    private static final String ANY_PATH = "/**";
+
+    private final Node root;
+
+    private final int[] all;
+
+    private UriPrefixTree(final Node root, final int[] all) {
+        this.root = root;
+        this.all = all;
+    }
+
+    /**
+     * the literal prefix a path must start with to satisfy the condition.
+     *
+     * @param condition the condition
+     * @return the prefix, or null if the condition can not be indexed by uri
+     */
+    static String literalPrefix(final ConditionZkDTO condition) {
+        if (Objects.isNull(condition) || !ParamTypeEnum.URI.getName().equals(condition.getParamType())) {
+            return null;
+        }
+        final String value = StringUtils.trimToEmpty(condition.getParamValue());
+        if (value.isEmpty() || value.contains(DOUBLE_SLASH)) {
+            return null;
+        }
+        if (OperatorEnum.EQ.getAlias().equals(condition.getOperator())) {
+            return value;
+        }
+        if (OperatorEnum.MATCH.getAlias().equals(condition.getOperator())) {
+            final int wildcard = StringUtils.indexOfAny(value, '*', '?', '{');
+            if (wildcard < 0) {
+                return value;
+            }
+            // a trailing "/**" also matches the path without it, "/a/**" matches "/a"
+            if (wildcard == value.length() - 2 && value.endsWith(ANY_PATH)) {
+                return value.substring(0, wildcard - 1);
+            }
+            return value.substring(0, wildcard);
+        }
+        return null;
+    }
+
+    /**
+     * create a builder, entries must be added in increasing ordinal order.
+     *
+     * @return builder
+     */
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * whether the tree holds no entry.
+     *
+     * @return true if empty
+     */
+    boolean isEmpty() {
+        return all.length == 0;
+    }
+
+    /**
+     * find the smallest ordinal below {@code limit} whose entry matches the exchange.
+     *
+     * @param path     request path
+     * @param exchange the current server exchange
+     * @param matcher  verifies a candidate
+     * @param limit    ordinal of the best match found so far, {@linkplain OrdinalMatcher#NONE} if none
+     * @return the new best ordinal
+     */
+    int firstMatch(final String path, final ServerWebExchange exchange, final OrdinalMatcher matcher, final int limit) {
+        if (path.contains(DOUBLE_SLASH)) {
+            return scan(all, exchange, matcher, limit);
+        }
+        int best = limit;
+        Node node = root;
+        int pos = 0;
+        while (true) {
+            best = scan(node.ordinals, exchange, matcher, best);
+            if (pos == path.length()) {
+                return best;
+            }
+            final Node child = node.child(path.charAt(pos));
+            if (Objects.isNull(child) || !path.startsWith(child.label, pos)) {
+                return best;
+            }
+            pos += child.label.length();
+            node = child;
+        }
+    }
+
+    private static int scan(final int[] ordinals, final ServerWebExchange exchange,
+                            final OrdinalMatcher matcher, final int limit) {
+        for (int ordinal : ordinals) {
+            if (ordinal >= limit) {
+                break;
+            }
+            if (matcher.matchOrdinal(ordinal, exchange)) {
+                return ordinal;
+            }
+        }
+        return limit;
+    }
+
+    private static int[] append(final int[] ordinals, final int ordinal) {
+        final int[] appended = Arrays.copyOf(ordinals, ordinals.length + 1);
+        appended[ordinals.length] = ordinal;
+        return appended;
+    }
+
+    /**
+     * builds an {@linkplain UriPrefixTree}, not thread safe.
+     */
+    static final class Builder {
+
+        private final Node root = new Node("");
+
+        private int[] all = NO_ORDINALS;
+
+        private Builder() {
+        }
+
+        /**
+         * add an entry under a prefix.
+         *
+         * @param prefix  literal prefix
+         * @param ordinal entry ordinal
+         * @return this
+         */
+        Builder add(final String prefix, final int ordinal) {
+            Node node = root;
+            int pos = 0;
+            while (pos < prefix.length()) {
+                Node child = node.child(prefix.charAt(pos));
+                if (Objects.isNull(child)) {
+                    child = new Node(prefix.substring(pos));
+                    node.children = appendChild(node.children, child);
+                    node = child;
+                    break;
+                }
+                final int common = commonLength(child.label, prefix, pos);
+                if (common < child.label.length()) {
+                    final Node split = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    split.children = new Node[]{child};
+                    node.children[indexOf(node.children, child)] = split;
+                    child = split;
+                }
+                node = child;
+                pos += common;
+            }
+            node.ordinals = append(node.ordinals, ordinal);
+            all = append(all, ordinal);
+            return this;
+        }
+
+        /**
+         * build the tree.
+         *
+         * @return tree
+         */
+        UriPrefixTree build() {
+            return new UriPrefixTree(root, all);
+        }
+
+        private static int commonLength(final String label, final String prefix, final int offset) {
+            final int max = Math.min(label.length(), prefix.length() - offset);
+            int i = 0;
+            while (i < max && label.charAt(i) == prefix.charAt(offset + i)) {
+                i++;
+            }
+            return i;
+        }
+
+        private static int indexOf(final Node[] nodes, final Node node) {
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] == node) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("node is not a child");
+        }
+
+        private static Node[] appendChild(final Node[] nodes, final Node node) {
+            final Node[] appended = Arrays.copyOf(nodes, nodes.length + 1);
+            appended[nodes.length] = node;
+            return appended;
+        }
+    }
+
+    private static final class Node {
+
+        private String label;
+
+        private Node[] children = NO_CHILDREN;
+
+        private int[] ordinals = NO_ORDINALS;
+
+        Node(final String label) {
+            this.label = label;
+        }
+
+        Node child(final char first) {
+            for (Node child : children) {
+                if (child.label.charAt(0) == first) {
+                    return child;
+                }
+            }
+            return null;
+        }
+    }
+}
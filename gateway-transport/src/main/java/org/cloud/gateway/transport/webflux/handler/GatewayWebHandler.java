@@ -24,16 +24,33 @@ import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebHandler;
 import reactor.core.publisher.Mono;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-
+/**
+ * Runs the switched on plugins in order.
+ *
+ * <p>The chain is compiled once into immutable links, one per switched on plugin, and shared by every request,
+ * so handling a request allocates no chain and never enters a switched off plugin. The links are rebuilt
+ * through {@linkplain #refresh(String, boolean)} when a plugin is switched on or off; a switch seen that way
+ * overrides {@linkplain Plugin#enabled()}, which may lag behind while the zookeeper cache loads. A plugin whose
+ * state is not known yet stays in the chain and checks its switch itself when it runs.
+ */
 public final class GatewayWebHandler implements WebHandler {
 
-    private List<Plugin> plugins;
+    private static final PluginChain END = exchange -> Mono.empty();
+
+    private final Plugin[] plugins;
 
+    private final Map<String, Boolean> switches = new ConcurrentHashMap<>();
+
+    private volatile PluginChain chain = END;
 
     public GatewayWebHandler(final List<Plugin> plugins) {
-        this.plugins = plugins;
+        this.plugins = plugins.toArray(new Plugin[0]);
+        refresh();
     }
 
     /**
@@ -44,24 +61,61 @@ public final class GatewayWebHandler implements WebHandler {
      */
     @Override
     public Mono<Void> handle(final ServerWebExchange exchange) {
-        return new DefaultPluginChain(plugins)
-                .execute(exchange)
+        return chain.execute(exchange)
                 .doOnError(Throwable::printStackTrace);
     }
 
-    private static class DefaultPluginChain implements PluginChain {
+    /**
+     * the plugins this handler runs, in order.
+     *
+     * @return the plugins
+     */
+    public List<Plugin> getPlugins() {
+        return Arrays.asList(plugins.clone());
+    }
 
-        private int index;
+    /**
+     * recompile the chain from the switches seen so far and the {@linkplain Plugin#enabled()} of the other plugins.
+     */
+    public synchronized void refresh() {
+        PluginChain next = END;
+        for (int i = plugins.length - 1; i >= 0; i--) {
+            final Plugin plugin = plugins[i];
+            final Boolean switched = switches.get(plugin.named());
+            if (switched != null ? switched : plugin.enabled()) {
+                next = new PluginLink(plugin, next);
+            }
+        }
+        chain = next;
+    }
 
-        private final List<Plugin> plugins;
+    /**
+     * recompile the chain after a plugin has been switched on or off.
+     *
+     * @param pluginName the switched plugin
+     * @param enabled    its new state
+     */
+    public synchronized void refresh(final String pluginName, final boolean enabled) {
+        switches.put(pluginName, enabled);
+        refresh();
+    }
 
-        /**
-         * Instantiates a new Default soul plugin chain.
-         *
-         * @param plugins the plugins
-         */
-        DefaultPluginChain(final List<Plugin> plugins) {
-            this.plugins = plugins;
+    /**
+     * one step of the compiled chain, it hands the plugin the rest of the chain.
+     * links are immutable, so one chain is safely shared by all requests.
+     */
+    private static final class PluginLink implements PluginChain {
+
+        private final Plugin plugin;
+
+        private final PluginChain next;
+
+        private final boolean bodyRequired;
+
+        PluginLink(final Plugin plugin, final PluginChain next) {
+            this.plugin = plugin;
+            this.next = next;
+            this.bodyRequired = plugin.requiresBody() || next.requiresBody();
         }
 
         /**
@@ -72,12 +126,12 @@ public final class GatewayWebHandler implements WebHandler {
          */
         @Override
         public Mono<Void> execute(final ServerWebExchange exchange) {
-            if (this.index < plugins.size()) {
-                Plugin plugin = plugins.get(this.index++);
-                return plugin.execute(exchange, this);
-            } else {
-                return Mono.empty();
-            }
+            return plugin.execute(exchange, next);
+        }
+
+        @Override
+        public boolean requiresBody() {
+            return bodyRequired;
         }
     }
 }
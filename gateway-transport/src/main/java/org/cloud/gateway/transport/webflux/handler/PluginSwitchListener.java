@@ -0,0 +1,84 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.handler;
+
+import org.I0Itec.zkclient.IZkDataListener;
+import org.I0Itec.zkclient.ZkClient;
+import org.cloud.gateway.common.constant.ZkPathConstants;
+import org.cloud.gateway.common.dto.zk.PluginZkDTO;
+import org.cloud.gateway.common.utils.LogUtils;
+import org.cloud.gateway.transport.webflux.plugin.AbstractPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the zookeeper nodes of the switchable plugins and recompiles the {@linkplain GatewayWebHandler}
+ * chain when one of them is switched on or off.
+ * The state is taken from the nodes and events themselves, so it does not depend on the cache having loaded.
+ */
+public final class PluginSwitchListener implements IZkDataListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PluginSwitchListener.class);
+
+    private final GatewayWebHandler gatewayWebHandler;
+
+    public PluginSwitchListener(final GatewayWebHandler gatewayWebHandler) {
+        this.gatewayWebHandler = gatewayWebHandler;
+    }
+
+    /**
+     * subscribe to the node of every plugin of the handler that is switched through zookeeper,
+     * and compile the chain from the current state of those nodes.
+     *
+     * @param zkClient zookeeper client
+     */
+    public void subscribe(final ZkClient zkClient) {
+        gatewayWebHandler.getPlugins().stream()
+                .filter(plugin -> plugin instanceof AbstractPlugin)
+                .forEach(plugin -> {
+                    final String path = ZkPathConstants.buildPluginPath(plugin.named());
+                    zkClient.subscribeDataChanges(path, this);
+                    final Object data = zkClient.readData(path, true);
+                    if (data instanceof PluginZkDTO) {
+                        final boolean enabled = Boolean.TRUE.equals(((PluginZkDTO) data).getEnabled());
+                        gatewayWebHandler.refresh(plugin.named(), enabled);
+                    }
+                });
+        gatewayWebHandler.refresh();
+    }
+
+    @Override
+    public void handleDataChange(final String dataPath, final Object data) {
+        if (data instanceof PluginZkDTO) {
+            final PluginZkDTO pluginZkDTO = (PluginZkDTO) data;
+            final boolean enabled = Boolean.TRUE.equals(pluginZkDTO.getEnabled());
+            LogUtils.info(LOGGER, () -> "plugin switched, path :" + dataPath + " enabled :" + enabled);
+            gatewayWebHandler.refresh(pluginName(dataPath), enabled);
+        }
+    }
+
+    @Override
+    public void handleDataDeleted(final String dataPath) {
+        gatewayWebHandler.refresh(pluginName(dataPath), false);
+    }
+
+    private static String pluginName(final String dataPath) {
+        return dataPath.substring(dataPath.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,266 @@
+package org.cloud.gateway.transport.webflux.health;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import io.netty.channel.ChannelOption;
+import org.apache.commons.lang3.StringUtils;
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.utils.LogUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * keeps track of which upstreams can take traffic.
+ *
+ * <p>Active checks: every upstream of a list handed to {@linkplain #available(List)} is probed on a schedule
+ * with a non-blocking tcp connect. Passive checks: an upstream failing {@code consecutiveErrors} proxied
+ * requests in a row is ejected for {@code ejectionTime}, whatever its probes say.
+ *
+ * <p>{@linkplain #available(List)} returns the healthy part of a list. The result is cached per list and only
+ * recomputed when some upstream changes health, so the load balances, which key their state by list identity,
+ * keep seeing the same list between changes. When no upstream of a list is healthy the whole list is returned,
+ * routing somewhere beats failing everything.
+ */
+public final class UpstreamHealthChecker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpstreamHealthChecker.class);
+
+    private final long interval;
+
+    private final int timeout;
+
+    private final int consecutiveErrors;
+
+    private final long ejectionTime;
+
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final LoadingCache<List<DivideUpstream>, View> views = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(CacheLoader.from(View::new));
+
+    private volatile Disposable schedule;
+
+    /**
+     * Instantiates a new upstream health checker.
+     *
+     * @param interval          probe interval, in millis
+     * @param timeout           probe connect timeout, in millis
+     * @param consecutiveErrors failed requests in a row that eject an upstream
+     * @param ejectionTime      how long an ejected upstream is left out, in millis
+     */
+    public UpstreamHealthChecker(final long interval, final int timeout, final int consecutiveErrors, final long ejectionTime) {
+        this.interval = interval;
+        this.timeout = timeout;
+        this.consecutiveErrors = consecutiveErrors;
+        this.ejectionTime = ejectionTime;
+    }
+
+    /**
+     * start probing.
+     */
+    public void start() {
+        schedule = Flux.interval(Duration.ofMillis(interval))
+                .onBackpressureDrop()
+                .concatMap(tick -> probe())
+                .subscribe();
+    }
+
+    /**
+     * stop probing.
+     */
+    public void stop() {
+        final Disposable current = schedule;
+        if (Objects.nonNull(current)) {
+            current.dispose();
+        }
+    }
+
+    /**
+     * the healthy upstreams of a list.
+     *
+     * @param upstreamList upstreams of a selector
+     * @return the healthy ones, the list itself when all or none are healthy
+     */
+    public List<DivideUpstream> available(final List<DivideUpstream> upstreamList) {
+        final View view = views.getUnchecked(upstreamList);
+        final long current = version.get();
+        if (view.version != current) {
+            view.refresh(current);
+        }
+        return view.available;
+    }
+
+    /**
+     * a proxied request to the upstream succeeded.
+     *
+     * @param divideUpstream upstream
+     */
+    public void onSuccess(final DivideUpstream divideUpstream) {
+        final Target target = targets.get(divideUpstream.getUpstreamUrl());
+        if (Objects.nonNull(target) && target.failures.get() != 0) {
+            target.failures.set(0);
+        }
+    }
+
+    /**
+     * a proxied request to the upstream failed.
+     *
+     * @param divideUpstream upstream
+     */
+    public void onError(final DivideUpstream divideUpstream) {
+        final Target target = targets.get(divideUpstream.getUpstreamUrl());
+        if (Objects.nonNull(target) && target.failures.incrementAndGet() >= consecutiveErrors) {
+            target.failures.set(0);
+            target.ejectedUntil = System.currentTimeMillis() + ejectionTime;
+            LogUtils.warn(LOGGER, () -> "upstream ejected after consecutive errors :" + divideUpstream.getUpstreamUrl());
+            version.incrementAndGet();
+        }
+    }
+
+    private Target target(final DivideUpstream divideUpstream) {
+        return targets.computeIfAbsent(divideUpstream.getUpstreamUrl(), url -> new Target(divideUpstream));
+    }
+
+    /**
+     * probe every upstream of a live list, forget upstreams no list holds any more, and let ejections expire.
+     */
+    private Mono<Void> probe() {
+        final Set<String> live = new HashSet<>();
+        views.asMap().values().forEach(view -> view.targets.stream().filter(Objects::nonNull).forEach(target -> {
+            live.add(target.url);
+            targets.putIfAbsent(target.url, target);
+        }));
+        targets.keySet().retainAll(live);
+        final long now = System.currentTimeMillis();
+        targets.values().forEach(target -> {
+            if (target.ejectedUntil != 0 && target.ejectedUntil <= now) {
+                target.ejectedUntil = 0;
+                version.incrementAndGet();
+            }
+        });
+        return Flux.fromIterable(targets.values())
+                .flatMap(target -> connect(target).doOnNext(target::probed))
+                .then()
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private Mono<Boolean> connect(final Target target) {
+        if (Objects.isNull(target.host)) {
+            return Mono.just(true);
+        }
+        return TcpClient.create()
+                .host(target.host)
+                .port(target.port)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeout)
+                .connect()
+                .map(connection -> {
+                    connection.dispose();
+                    return true;
+                })
+                .onErrorReturn(false);
+    }
+
+    /**
+     * health of one upstream.
+     */
+    private final class Target {
+
+        private final String url;
+
+        private final String host;
+
+        private final int port;
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private volatile boolean reachable = true;
+
+        private volatile long ejectedUntil;
+
+        Target(final DivideUpstream divideUpstream) {
+            this.url = divideUpstream.getUpstreamUrl();
+            final boolean https = StringUtils.startsWithIgnoreCase(divideUpstream.getProtocol(), "https");
+            final String hostPort = StringUtils.substringBefore(StringUtils.defaultString(url), "/");
+            final String host = StringUtils.substringBeforeLast(hostPort, ":");
+            final String port = StringUtils.substringAfterLast(hostPort, ":");
+            this.host = StringUtils.isBlank(hostPort) ? null : hostPort.contains(":") ? host : hostPort;
+            this.port = StringUtils.isNumeric(port) && !port.isEmpty() ? Integer.parseInt(port) : https ? 443 : 80;
+        }
+
+        boolean healthy() {
+            return reachable && ejectedUntil == 0;
+        }
+
+        void probed(final boolean result) {
+            if (reachable != result) {
+                reachable = result;
+                LogUtils.warn(LOGGER, () -> "upstream " + url + (result ? " is reachable again" : " is unreachable"));
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * healthy part of one upstream list, at one health version.
+     */
+    private final class View {
+
+        private final List<DivideUpstream> source;
+
+        /**
+         * target of each upstream of the source, null for an upstream without url.
+         */
+        private final List<Target> targets;
+
+        private volatile long version = -1;
+
+        private volatile List<DivideUpstream> available;
+
+        View(final List<DivideUpstream> source) {
+            this.source = source;
+            this.targets = Collections.unmodifiableList(source.stream()
+                    .map(upstream -> Objects.isNull(upstream.getUpstreamUrl()) ? null : target(upstream))
+                    .collect(Collectors.toList()));
+            this.available = source;
+        }
+
+        synchronized void refresh(final long current) {
+            if (this.version == current) {
+                return;
+            }
+            final List<DivideUpstream> healthy = new ArrayList<>(source.size());
+            for (int i = 0; i < source.size(); i++) {
+                final Target target = targets.get(i);
+                if (Objects.isNull(target) || target.healthy()) {
+                    healthy.add(source.get(i));
+                }
+            }
+            final List<DivideUpstream> next = healthy.size() == source.size() || healthy.isEmpty() ? source : healthy;
+            if (!next.equals(available)) {
+                available = next;
+            }
+            this.version = current;
+        }
+    }
+}
@@ -25,12 +25,12 @@ import org.cloud.gateway.common.dto.zk.PluginZkDTO;
 import org.cloud.gateway.common.dto.zk.RuleZkDTO;
 import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
 import org.cloud.gateway.common.enums.PluginEnum;
-import org.cloud.gateway.common.enums.SelectorTypeEnum;
 import org.cloud.gateway.common.result.SoulResult;
 import org.cloud.gateway.common.utils.JsonUtils;
 import org.cloud.gateway.common.utils.LogUtils;
 import org.cloud.gateway.cache.ZookeeperCacheManager;
-import org.cloud.gateway.web.condition.strategy.MatchStrategyFactory;
+import org.cloud.gateway.transport.webflux.condition.CompiledSelector;
+import org.cloud.gateway.transport.webflux.condition.SelectorIndex;
 import org.cloud.gateway.webflux.request.RequestDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +53,11 @@ public abstract class AbstractPlugin implements Plugin {
 
     private final ZookeeperCacheManager zookeeperCacheManager;
 
+    /**
+     * compiled selectors of this plugin, rebuilt when zookeeper hands out a new selector list.
+     */
+    private volatile SelectorIndex selectorIndex = SelectorIndex.EMPTY;
+
     /**
      * this is Template Method child has Implement your own logic.
      *
@@ -82,13 +87,11 @@ public abstract class AbstractPlugin implements Plugin {
             if (CollectionUtils.isEmpty(selectors)) {
                 return chain.execute(exchange);
             }
-            final SelectorZkDTO selectorZkDTO = selectors.stream()
-                    .filter(selector -> selector.getEnabled() && filterSelector(selector, exchange))
-                    .findFirst().orElse(null);
-
-            if (Objects.isNull(selectorZkDTO)) {
+            final CompiledSelector compiledSelector = acquireSelectorIndex(selectors).match(exchange);
+            if (Objects.isNull(compiledSelector)) {
                 return chain.execute(exchange);
             }
+            final SelectorZkDTO selectorZkDTO = compiledSelector.getSelector();
 
             if (selectorZkDTO.getLoged()) {
                 LogUtils.info(LOGGER, named()
@@ -100,7 +103,7 @@ public abstract class AbstractPlugin implements Plugin {
                 return chain.execute(exchange);
             }
 
-            RuleZkDTO rule = filterRule(exchange, rules);
+            RuleZkDTO rule = compiledSelector.matchRule(rules, exchange);
 
             final RequestDTO request = exchange.getAttribute(Constants.REQUESTDTO);
 
@@ -130,22 +133,24 @@ public abstract class AbstractPlugin implements Plugin {
         return chain.execute(exchange);
     }
 
-    private Boolean filterSelector(final SelectorZkDTO selector, final ServerWebExchange exchange) {
-        if (selector.getType() == SelectorTypeEnum.CUSTOM_FLOW.getCode()) {
-            if (CollectionUtils.isEmpty(selector.getConditionZkDTOList())) {
-                return false;
-            }
-            return MatchStrategyFactory.of(selector.getMatchMode())
-                    .match(selector.getConditionZkDTOList(), exchange);
-        }
-        return true;
+    /**
+     * whether the plugin is switched on. a plugin the cache has not loaded yet counts as switched on,
+     * {@linkplain #execute(ServerWebExchange, PluginChain)} checks the switch again on every request.
+     *
+     * @return false once the cache knows the plugin is switched off
+     */
+    @Override
+    public boolean enabled() {
+        final PluginZkDTO pluginZkDTO = zookeeperCacheManager.findPluginByName(named());
+        return Objects.isNull(pluginZkDTO) || Boolean.TRUE.equals(pluginZkDTO.getEnabled());
     }
 
-    private RuleZkDTO filterRule(final ServerWebExchange exchange, final List<RuleZkDTO> rules) {
-        return rules.stream()
-                .filter(rule -> Objects.nonNull(rule) && rule.getEnabled())
-                .filter((RuleZkDTO ruleZkDTO) -> MatchStrategyFactory.of(ruleZkDTO.getMatchMode())
-                        .match(ruleZkDTO.getConditionZkDTOList(), exchange))
-                .findFirst().orElse(null);
+    private SelectorIndex acquireSelectorIndex(final List<SelectorZkDTO> selectors) {
+        SelectorIndex index = selectorIndex;
+        if (!index.isBuiltFrom(selectors)) {
+            index = SelectorIndex.build(selectors);
+            selectorIndex = index;
+        }
+        return index;
     }
 }
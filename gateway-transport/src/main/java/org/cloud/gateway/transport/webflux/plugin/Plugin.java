@@ -67,5 +67,25 @@ public interface Plugin {
         return false;
     }
 
+    /**
+     * whether the plugin is switched on.
+     * a switched off plugin is left out of the plugin chain.
+     *
+     * @return default true.
+     */
+    default boolean enabled() {
+        return true;
+    }
+
+    /**
+     * whether the plugin reads the request body.
+     * the body is only cached when a plugin later in the chain requires it, otherwise it is streamed.
+     *
+     * @return default false.
+     */
+    default boolean requiresBody() {
+        return false;
+    }
+
 }
 
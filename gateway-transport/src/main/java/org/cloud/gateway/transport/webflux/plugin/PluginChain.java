@@ -32,4 +32,13 @@ public interface PluginChain {
      */
     Mono<Void> execute(ServerWebExchange exchange);
 
+    /**
+     * whether a plugin left in the chain reads the request body.
+     *
+     * @return default false.
+     */
+    default boolean requiresBody() {
+        return false;
+    }
+
 }
@@ -20,47 +20,86 @@ package org.cloud.gateway.transport.webflux.plugin.after;
 
 import org.cloud.gateway.common.constant.Constants;
 import org.cloud.gateway.common.enums.PluginTypeEnum;
-import org.cloud.gateway.common.enums.RpcTypeEnum;
-import org.cloud.gateway.common.exception.SoulException;
-import org.cloud.gateway.common.result.SoulResult;
-import org.cloud.gateway.common.utils.JsonUtils;
 import org.cloud.gateway.transport.webflux.plugin.PluginChain;
 import org.cloud.gateway.transport.webflux.plugin.Plugin;
-import org.cloud.gateway.web.plugin.SoulPlugin;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.function.BodyExtractors;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
-
+/**
+ * relays the upstream response to the client.
+ *
+ * <p>Status and end-to-end headers are moved to the response once, hop-by-hop headers (and those named by
+ * {@code Connection}) stay behind. The body buffers are written as the upstream client hands them over, pooled
+ * and unwrapped. Event streams and responses without a content length are flushed buffer by buffer, so the
+ * client sees every chunk as soon as it arrives.
+ */
 public class ResponsePlugin implements Plugin {
 
+    private static final Set<String> HOP_BY_HOP_HEADERS = caseInsensitive(Arrays.asList(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE));
 
     @Override
     public Mono<Void> execute(final ServerWebExchange exchange, final PluginChain chain) {
-
         return chain.execute(exchange).then(Mono.defer(() -> {
-
-            ServerHttpResponse response = exchange.getResponse();
-
-            ClientResponse clientResponse = exchange.getAttribute("");
-
-            if(Objects.nonNull(clientResponse)){
-                clientResponse.headers().asHttpHeaders().forEach((k,v)->{
-                    response.getHeaders().put(k,v);
-                });
-                return response.writeWith(clientResponse.body(BodyExtractors.toDataBuffers()));
+            final ServerHttpResponse response = exchange.getResponse();
+            final ClientResponse clientResponse = exchange.getAttribute(Constants.CLIENT_RESPONSE_ATTR);
+            if (Objects.isNull(clientResponse)) {
+                return response.setComplete();
+            }
+            response.setStatusCode(clientResponse.statusCode());
+            final HttpHeaders upstreamHeaders = clientResponse.headers().asHttpHeaders();
+            relayHeaders(upstreamHeaders, response.getHeaders());
+            final Flux<DataBuffer> body = clientResponse.body(BodyExtractors.toDataBuffers());
+            if (isStreaming(upstreamHeaders)) {
+                return response.writeAndFlushWith(body.map(Flux::just));
             }
-            return response.writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap("".getBytes(StandardCharsets.UTF_8))));
+            return response.writeWith(body);
         }));
+    }
 
+    private static void relayHeaders(final HttpHeaders upstreamHeaders, final HttpHeaders headers) {
+        final List<String> connection = upstreamHeaders.getConnection();
+        final Set<String> connectionHeaders = connection.isEmpty() ? Collections.emptySet() : caseInsensitive(connection);
+        for (Map.Entry<String, List<String>> header : upstreamHeaders.entrySet()) {
+            final String name = header.getKey();
+            if (!HOP_BY_HOP_HEADERS.contains(name) && !connectionHeaders.contains(name)) {
+                headers.put(name, header.getValue());
+            }
+        }
     }
 
+    private static boolean isStreaming(final HttpHeaders upstreamHeaders) {
+        final MediaType contentType = upstreamHeaders.getContentType();
+        if (Objects.nonNull(contentType) && (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)
+                || MediaType.APPLICATION_STREAM_JSON.isCompatibleWith(contentType))) {
+            return true;
+        }
+        return upstreamHeaders.getContentLength() < 0;
+    }
+
+    private static Set<String> caseInsensitive(final List<String> names) {
+        final Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        names.forEach(name -> set.add(StringUtils.trimWhitespace(name)));
+        return set;
+    }
 
     @Override
     public PluginTypeEnum pluginType() {
@@ -72,10 +111,8 @@ public class ResponsePlugin implements Plugin {
         return Ordered.LOWEST_PRECEDENCE;
     }
 
-
     @Override
     public String named() {
-        return "";
+        return "response";
     }
-
 }
@@ -1,40 +1,44 @@
 package org.cloud.gateway.transport.webflux.plugin.before;
 
+import org.cloud.gateway.common.constant.Constants;
 import org.cloud.gateway.common.enums.PluginTypeEnum;
-import org.cloud.gateway.transport.webflux.plugin.PluginChain;
 import org.cloud.gateway.transport.webflux.plugin.Plugin;
+import org.cloud.gateway.transport.webflux.plugin.PluginChain;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.awt.image.DataBuffer;
+import java.util.Objects;
 
 /**
+ * caches the request body for the plugins that read it.
+ * the body is only buffered when a plugin further down the chain {@linkplain Plugin#requiresBody() requires}
+ * it, every other request streams its body straight through.
+ * caching is opt-in and none of the plugins in this tree opts in yet, so requests with a body are streamed and
+ * the divide plugin neither retries nor hedges them; a plugin that reads the body (sign, waf, parameter
+ * rewriting) overrides {@linkplain Plugin#requiresBody()} to turn it on.
+ *
  * Created by cjy on 2020/1/22.
  */
 public class CachedBodyPlugin implements Plugin {
 
-
     @Override
-    public Mono<Void> execute(ServerWebExchange exchange, PluginChain chain) {
-
-       DataBuffer body= exchange.getAttributeOrDefault("Cached_req_body_attr", null);
-       if(body!=null){
-
-           return chain.execute(exchange);
-       }
-
-       return ServerWebExchangeUtils.cacheRequestBody(exchange,(serverHttpRequest)->{
-           if(serverHttpRequest==exchange.getRequest()){
-               return chain.execute(exchange);
-           }
-           return chain.execute(exchange.mutate().request(serverHttpRequest).build());
-       });
-
+    public Mono<Void> execute(final ServerWebExchange exchange, final PluginChain chain) {
+        if (!chain.requiresBody()
+                || !ServerWebExchangeUtils.hasBody(exchange.getRequest().getMethod())
+                || Objects.nonNull(exchange.getAttribute(Constants.CACHED_REQUEST_BODY_ATTR))) {
+            return chain.execute(exchange);
+        }
+        return ServerWebExchangeUtils.cacheRequestBody(exchange, serverHttpRequest -> {
+            if (serverHttpRequest == exchange.getRequest()) {
+                return chain.execute(exchange);
+            }
+            return chain.execute(exchange.mutate().request(serverHttpRequest).build());
+        });
     }
 
     @Override
     public PluginTypeEnum pluginType() {
-        return null;
+        return PluginTypeEnum.BEFORE;
     }
 
     @Override
@@ -44,6 +48,6 @@ public class CachedBodyPlugin implements Plugin {
 
     @Override
     public String named() {
-        return null;
+        return "cachedBody";
     }
 }
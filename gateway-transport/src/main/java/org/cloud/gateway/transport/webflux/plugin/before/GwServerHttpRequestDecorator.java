@@ -1,69 +1,47 @@
 package org.cloud.gateway.transport.webflux.plugin.before;
 
-import com.google.common.io.ByteStreams;
-import io.netty.buffer.UnpooledByteBufAllocator;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.NettyDataBufferFactory;
-import org.springframework.http.HttpMethod;
+import org.springframework.core.io.buffer.NettyDataBuffer;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.io.IOException;
-import java.io.InputStream;
-
-import static reactor.core.scheduler.Schedulers.single;
+import java.util.Objects;
 
 /**
+ * request whose body is either streamed from the client untouched, or served from a cached body.
+ * a cached body is handed out as a retained slice on every subscription, so it can be read any number of
+ * times without copying; the pooled buffer itself is released by whoever cached it.
+ *
  * Created by cjy on 2020/1/22.
  */
 public class GwServerHttpRequestDecorator extends ServerHttpRequestDecorator {
-    private Flux<DataBuffer> body;
-
-    public GwServerHttpRequestDecorator(ServerHttpRequest delegate) {
-        super(delegate);
 
-        Flux<DataBuffer> flux = super.getBody();
+    private final DataBuffer cachedBody;
 
-        if (requiresIsNeedBody(delegate.getMethod())){
-            body=flux.publishOn(single()).map(dataBuffer ->handleStream());
-        }else{
-            body=flux;
-        }
+    public GwServerHttpRequestDecorator(final ServerHttpRequest delegate) {
+        this(delegate, null);
     }
 
-
-    private DataBuffer handleStream(org.springframework.http.server.ServerHttpRequest delegate,DataBuffer buffer){
-        String path=delegate.getURI().getPath();
-
-        try {
-            InputStream is=buffer.asInputStream();
-            byte[] bytes= ByteStreams.toByteArray(is);
-            NettyDataBufferFactory nettyDataBufferFactory=new NettyDataBufferFactory(new UnpooledByteBufAllocator(false));
-            DataBufferUtils.release(buffer);
-            return nettyDataBufferFactory.wrap(bytes);
-        } catch (IOException e) {
-            e.printStackTrace();
-
-        }
-        return null;
+    public GwServerHttpRequestDecorator(final ServerHttpRequest delegate, final DataBuffer cachedBody) {
+        super(delegate);
+        this.cachedBody = cachedBody;
     }
 
-    private boolean requiresIsNeedBody(HttpMethod method){
-        switch(method){
-            case PUT:
-            case POST:
-            case PATCH:
-                return true;
-            default:
-                return false;
+    @Override
+    public Flux<DataBuffer> getBody() {
+        if (Objects.isNull(cachedBody)) {
+            return super.getBody();
         }
+        return Mono.fromSupplier(() -> slice(cachedBody)).flux();
     }
 
-
-    @Override
-    public Flux<DataBuffer> getBody() {
-        return body;
+    private static DataBuffer slice(final DataBuffer dataBuffer) {
+        if (dataBuffer instanceof NettyDataBuffer) {
+            final NettyDataBuffer nettyDataBuffer = (NettyDataBuffer) dataBuffer;
+            return nettyDataBuffer.factory().wrap(nettyDataBuffer.getNativeBuffer().retainedSlice());
+        }
+        return dataBuffer.factory().wrap(dataBuffer.asByteBuffer());
     }
-}
\ No newline at end of file
+}
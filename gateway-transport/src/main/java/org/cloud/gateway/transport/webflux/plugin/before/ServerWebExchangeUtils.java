@@ -1,13 +1,14 @@
 package org.cloud.gateway.transport.webflux.plugin.before;
 
+import org.cloud.gateway.common.constant.Constants;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.web.server.ServerWebExchange;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+
+import java.util.Objects;
 import java.util.function.Function;
 
 /**
@@ -15,35 +16,56 @@ import java.util.function.Function;
  */
 public class ServerWebExchangeUtils {
 
+    /**
+     * cache the request body, then continue with a request that serves it from the cache.
+     *
+     * <p>On netty the received buffers are joined into a composite buffer over the pooled ones, nothing is
+     * copied. The cached body is kept under {@linkplain Constants#CACHED_REQUEST_BODY_ATTR} and released once
+     * the returned {@code Mono} terminates. A request without a body continues unchanged.
+     *
+     * @param exchange the current server exchange
+     * @param function continuation, given the request to use from now on
+     * @param <T>      result type
+     * @return result of the continuation
+     */
+    public static <T> Mono<T> cacheRequestBody(final ServerWebExchange exchange, final Function<ServerHttpRequest, Mono<T>> function) {
+        return DataBufferUtils.join(exchange.getRequest().getBody())
+                .map(dataBuffer -> {
+                    if (dataBuffer.readableByteCount() == 0) {
+                        DataBufferUtils.release(dataBuffer);
+                        return exchange.getRequest();
+                    }
+                    exchange.getAttributes().put(Constants.CACHED_REQUEST_BODY_ATTR, dataBuffer);
+                    return (ServerHttpRequest) new GwServerHttpRequestDecorator(exchange.getRequest(), dataBuffer);
+                })
+                .switchIfEmpty(Mono.fromSupplier(exchange::getRequest))
+                .flatMap(function)
+                .doFinally(signal -> {
+                    final DataBuffer cached = exchange.getAttribute(Constants.CACHED_REQUEST_BODY_ATTR);
+                    if (Objects.nonNull(cached)) {
+                        exchange.getAttributes().remove(Constants.CACHED_REQUEST_BODY_ATTR);
+                        DataBufferUtils.release(cached);
+                    }
+                });
+    }
 
-    public static <T>  Mono<T> cacheRequestBody(ServerWebExchange exchange,Function<ServerHttpRequest,Mono<T>> function){
-
-        return DataBufferUtils.join(exchange.getRequest().getBody()).map(dataBuffer->{
-            if(dataBuffer.readableByteCount()>0){
-
-                exchange.getAttributes().put("Cached_req_body_attr",dataBuffer);
-            }
-
-            ServerHttpRequest decorator=new ServerHttpRequestDecorator(exchange.getRequest()){
-
-                public Flux<DataBuffer>  getBody(){
-
-                    return Mono.<DataBuffer>fromSupplier(()->{
-                        if(exchange.getAttributeOrDefault("Cached_req_body_attr",null)==null){
-                            return null;
-                        }
-                        NettyDataBuffer  pdb=(NettyDataBuffer)dataBuffer;
-                        return pdb.factory().wrap(pdb.getNativeBuffer().retainedSlice());
-                    }).flux();
-                }
-
-            };
-            return decorator;
-        }).switchIfEmpty(Mono.just(exchange.getRequest())).flatMap(function);
-
-
+    /**
+     * whether requests of the method carry a body.
+     *
+     * @param method http method
+     * @return true for put, post and patch
+     */
+    public static boolean hasBody(final HttpMethod method) {
+        if (Objects.isNull(method)) {
+            return false;
+        }
+        switch (method) {
+            case PUT:
+            case POST:
+            case PATCH:
+                return true;
+            default:
+                return false;
+        }
     }
 }
-
-
-
@@ -0,0 +1,104 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.plugin.function;
+
+import org.cloud.gateway.cache.ZookeeperCacheManager;
+import org.cloud.gateway.common.constant.Constants;
+import org.cloud.gateway.common.dto.convert.RateLimiterHandle;
+import org.cloud.gateway.common.dto.zk.RuleZkDTO;
+import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
+import org.cloud.gateway.common.enums.PluginEnum;
+import org.cloud.gateway.common.enums.PluginTypeEnum;
+import org.cloud.gateway.common.enums.RateLimiterModeEnum;
+import org.cloud.gateway.common.result.SoulResult;
+import org.cloud.gateway.common.utils.JsonUtils;
+import org.cloud.gateway.common.utils.LogUtils;
+import org.cloud.gateway.transport.webflux.plugin.AbstractPlugin;
+import org.cloud.gateway.transport.webflux.plugin.PluginChain;
+import org.cloud.gateway.transport.webflux.ratelimiter.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * limits the request rate of a rule with a token bucket.
+ * the engine enforcing the bucket is chosen per rule by the {@code mode} of its {@linkplain RateLimiterHandle}.
+ */
+public class RateLimiterPlugin extends AbstractPlugin {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiterPlugin.class);
+
+    private static final byte[] TOO_MANY_REQUESTS = Objects.requireNonNull(JsonUtils.toJson(
+            SoulResult.error(HttpStatus.TOO_MANY_REQUESTS.value(), Constants.TOO_MANY_REQUESTS))).getBytes();
+
+    private final Map<RateLimiterModeEnum, RateLimiter> rateLimiters;
+
+    public RateLimiterPlugin(final ZookeeperCacheManager zookeeperCacheManager,
+                             final Map<RateLimiterModeEnum, RateLimiter> rateLimiters) {
+        super(zookeeperCacheManager);
+        this.rateLimiters = new EnumMap<>(rateLimiters);
+    }
+
+    @Override
+    protected Mono<Void> doExecute(final ServerWebExchange exchange, final PluginChain chain, final SelectorZkDTO selector, final RuleZkDTO rule) {
+        final RateLimiterHandle handle = rule.acquireHandle(RateLimiterHandle.class);
+        final RateLimiter rateLimiter = Objects.isNull(handle) ? null
+                : rateLimiters.get(RateLimiterModeEnum.getRateLimiterModeByName(handle.getMode()));
+        if (Objects.isNull(rateLimiter) || handle.getReplenishRate() <= 0 || handle.getBurstCapacity() < 1) {
+            LogUtils.error(LOGGER, "rate limiter configuration error：{}", rule::toString);
+            return chain.execute(exchange);
+        }
+        return rateLimiter.isAllowed(rule.getId(), handle.getReplenishRate(), handle.getBurstCapacity())
+                .flatMap(response -> {
+                    if (handle.isLoged()) {
+                        LogUtils.info(LOGGER, "rate limiter tokens left :{}", response::getTokensLeft);
+                    }
+                    if (response.isAllowed()) {
+                        return chain.execute(exchange);
+                    }
+                    final ServerHttpResponse serverResponse = exchange.getResponse();
+                    serverResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                    serverResponse.getHeaders().setContentType(MediaType.APPLICATION_JSON_UTF8);
+                    return serverResponse.writeWith(Mono.just(serverResponse.bufferFactory().wrap(TOO_MANY_REQUESTS)));
+                });
+    }
+
+    @Override
+    public String named() {
+        return PluginEnum.RATE_LIMITER.getName();
+    }
+
+    @Override
+    public PluginTypeEnum pluginType() {
+        return PluginTypeEnum.FUNCTION;
+    }
+
+    @Override
+    public int getOrder() {
+        return PluginEnum.RATE_LIMITER.getCode();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.plugin.function;
+
+import org.cloud.gateway.cache.ZookeeperCacheManager;
+import org.cloud.gateway.common.dto.convert.CoalesceHandle;
+import org.cloud.gateway.common.dto.zk.RuleZkDTO;
+import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
+import org.cloud.gateway.common.enums.PluginEnum;
+import org.cloud.gateway.common.enums.PluginTypeEnum;
+import org.cloud.gateway.transport.webflux.cache.Freshness;
+import org.cloud.gateway.transport.webflux.cache.RequestKey;
+import org.cloud.gateway.transport.webflux.cache.ResponseCapture;
+import org.cloud.gateway.transport.webflux.cache.ResponseFlight;
+import org.cloud.gateway.transport.webflux.plugin.AbstractPlugin;
+import org.cloud.gateway.transport.webflux.plugin.PluginChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * collapses identical in-flight get and head requests into one upstream call.
+ *
+ * <p>Requests matching the same rule with the same method, path, query and listed headers are identical.
+ * The first one goes on to the divide plugin, the ones arriving while it is in flight wait (at most
+ * {@code maxWait}) and are answered with the buffers of its response. A waiter whose leader fails, times
+ * out, streams or returns too large a body makes its own call. Requests carrying credentials or cookies
+ * that are not part of the key are never coalesced.
+ */
+public class RequestCoalescingPlugin extends AbstractPlugin {
+
+    private static final int DEFAULT_MAX_WAIT = 3000;
+
+    private static final int DEFAULT_MAX_BODY_BYTES = 1024 * 1024;
+
+    private static final Freshness SHARED = new Freshness(0, 0);
+
+    private final ConcurrentMap<String, ResponseFlight> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder waiters = new LongAdder();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    public RequestCoalescingPlugin(final ZookeeperCacheManager zookeeperCacheManager) {
+        super(zookeeperCacheManager);
+    }
+
+    @Override
+    protected Mono<Void> doExecute(final ServerWebExchange exchange, final PluginChain chain, final SelectorZkDTO selector, final RuleZkDTO rule) {
+        final CoalesceHandle handle = rule.acquireHandle(CoalesceHandle.class);
+        if (Objects.isNull(handle) || isPrivate(exchange.getRequest(), handle.getVaryHeaders())) {
+            return chain.execute(exchange);
+        }
+        requests.increment();
+        final String key = RequestKey.of(exchange.getRequest(), rule, handle.getVaryHeaders());
+        final ResponseFlight flight = new ResponseFlight();
+        final ResponseFlight inFlight = flights.putIfAbsent(key, flight);
+        if (Objects.nonNull(inFlight)) {
+            waiters.increment();
+            return inFlight.serve(Duration.ofMillis(orDefault(handle.getMaxWait(), DEFAULT_MAX_WAIT)),
+                    exchange.getResponse(), () -> {
+                        fallbacks.increment();
+                        return chain.execute(exchange);
+                    });
+        }
+        final ResponseCapture capture = new ResponseCapture(exchange.getResponse(),
+                orDefault(handle.getMaxBodyBytes(), DEFAULT_MAX_BODY_BYTES),
+                (status, headers) -> Objects.isNull(status) || headers.containsKey(HttpHeaders.SET_COOKIE) ? null : SHARED,
+                flight::capture);
+        return chain.execute(exchange.mutate().response(capture).build())
+                .doFinally(signal -> {
+                    flights.remove(key, flight);
+                    flight.land();
+                });
+    }
+
+    private static boolean isPrivate(final ServerHttpRequest request, final List<String> varyHeaders) {
+        return isUnkeyed(request, HttpHeaders.AUTHORIZATION, varyHeaders)
+                || isUnkeyed(request, HttpHeaders.COOKIE, varyHeaders);
+    }
+
+    private static boolean isUnkeyed(final ServerHttpRequest request, final String header, final List<String> varyHeaders) {
+        return request.getHeaders().containsKey(header)
+                && (Objects.isNull(varyHeaders) || varyHeaders.stream().noneMatch(header::equalsIgnoreCase));
+    }
+
+    private static int orDefault(final Integer value, final int defaultValue) {
+        return Objects.isNull(value) || value <= 0 ? defaultValue : value;
+    }
+
+    /**
+     * requests that could be coalesced.
+     *
+     * @return count
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * requests answered with the response of an identical request, or still waiting for it.
+     *
+     * @return count
+     */
+    public long getCollapsed() {
+        return waiters.sum() - fallbacks.sum();
+    }
+
+    /**
+     * waiting requests that made their own call after all.
+     *
+     * @return count
+     */
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * share of requests that did not reach the upstream themselves.
+     *
+     * @return collapsed / requests
+     */
+    public double getCollapseRatio() {
+        final long total = requests.sum();
+        return total == 0 ? 0D : (double) getCollapsed() / total;
+    }
+
+    @Override
+    public Boolean skip(final ServerWebExchange exchange) {
+        final HttpMethod method = exchange.getRequest().getMethod();
+        return method != HttpMethod.GET && method != HttpMethod.HEAD;
+    }
+
+    @Override
+    public String named() {
+        return PluginEnum.COALESCE.getName();
+    }
+
+    @Override
+    public PluginTypeEnum pluginType() {
+        return PluginTypeEnum.FUNCTION;
+    }
+
+    @Override
+    public int getOrder() {
+        return PluginEnum.COALESCE.getCode();
+    }
+}
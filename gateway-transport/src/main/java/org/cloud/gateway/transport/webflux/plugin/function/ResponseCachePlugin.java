@@ -0,0 +1,153 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.plugin.function;
+
+import org.cloud.gateway.cache.ZookeeperCacheManager;
+import org.cloud.gateway.common.dto.convert.CacheHandle;
+import org.cloud.gateway.common.dto.zk.RuleZkDTO;
+import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
+import org.cloud.gateway.common.enums.PluginEnum;
+import org.cloud.gateway.common.enums.PluginTypeEnum;
+import org.cloud.gateway.common.utils.LogUtils;
+import org.cloud.gateway.transport.webflux.cache.CachedResponse;
+import org.cloud.gateway.transport.webflux.cache.DetachedServerHttpResponse;
+import org.cloud.gateway.transport.webflux.cache.Freshness;
+import org.cloud.gateway.transport.webflux.cache.RequestKey;
+import org.cloud.gateway.transport.webflux.cache.ResponseCache;
+import org.cloud.gateway.transport.webflux.cache.ResponseCapture;
+import org.cloud.gateway.transport.webflux.cache.ResponseFlight;
+import org.cloud.gateway.transport.webflux.plugin.AbstractPlugin;
+import org.cloud.gateway.transport.webflux.plugin.PluginChain;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * caches upstream responses to get requests, in front of the divide plugin.
+ *
+ * <p>Responses are keyed by rule, path, query and the request headers listed in the {@linkplain CacheHandle},
+ * and kept as long as their {@code Cache-Control} (or the handle) allows. A fresh response is written straight
+ * from the cache. A stale one within its stale-while-revalidate window is written as well, while a single
+ * background request refreshes it. Concurrent misses of the same key make one upstream call, the others wait
+ * for its response for a bounded time.
+ */
+public class ResponseCachePlugin extends AbstractPlugin {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCachePlugin.class);
+
+    private final ResponseCache responseCache;
+
+    private final ConcurrentMap<String, ResponseFlight> flights = new ConcurrentHashMap<>();
+
+    private final int maxEntryBytes;
+
+    private final Duration coalesceTimeout;
+
+    public ResponseCachePlugin(final ZookeeperCacheManager zookeeperCacheManager, final ResponseCache responseCache,
+                               final int maxEntryBytes, final Duration coalesceTimeout) {
+        super(zookeeperCacheManager);
+        this.responseCache = responseCache;
+        this.maxEntryBytes = maxEntryBytes;
+        this.coalesceTimeout = coalesceTimeout;
+    }
+
+    @Override
+    protected Mono<Void> doExecute(final ServerWebExchange exchange, final PluginChain chain, final SelectorZkDTO selector, final RuleZkDTO rule) {
+        final CacheHandle handle = rule.acquireHandle(CacheHandle.class);
+        if (Objects.isNull(handle)
+                || Freshness.isBypassed(exchange.getRequest().getHeaders(), handle.getVaryHeaders())) {
+            return chain.execute(exchange);
+        }
+        final String key = RequestKey.of(exchange.getRequest(), rule, handle.getVaryHeaders());
+        final long now = System.currentTimeMillis();
+        final CachedResponse cached = responseCache.get(key, now);
+        if (Objects.nonNull(cached)) {
+            final Mono<Void> written = cached.writeTo(exchange.getResponse());
+            if (Objects.nonNull(written)) {
+                if (!cached.isFresh(now)) {
+                    revalidate(exchange, chain, key, handle);
+                }
+                return written;
+            }
+        }
+        final ResponseFlight flight = new ResponseFlight();
+        final ResponseFlight inFlight = flights.putIfAbsent(key, flight);
+        if (Objects.nonNull(inFlight)) {
+            return inFlight.serve(coalesceTimeout, exchange.getResponse(), () -> chain.execute(exchange));
+        }
+        return fetch(exchange, exchange.getResponse(), chain, key, handle, flight);
+    }
+
+    /**
+     * refresh a stale response in the background, unless a request for it is already in flight.
+     */
+    private void revalidate(final ServerWebExchange exchange, final PluginChain chain,
+                            final String key, final CacheHandle handle) {
+        final ResponseFlight flight = new ResponseFlight();
+        if (Objects.nonNull(flights.putIfAbsent(key, flight))) {
+            return;
+        }
+        final ServerHttpResponse detached = new DetachedServerHttpResponse(exchange.getResponse().bufferFactory());
+        fetch(exchange, detached, chain, key, handle, flight)
+                .subscribe(null, e -> LogUtils.warn(LOGGER, "response cache refresh failed :{}", () -> key));
+    }
+
+    private Mono<Void> fetch(final ServerWebExchange exchange, final ServerHttpResponse response, final PluginChain chain,
+                             final String key, final CacheHandle handle, final ResponseFlight flight) {
+        final ResponseCapture capture = new ResponseCapture(response, maxEntryBytes,
+                (status, headers) -> Freshness.of(status, headers, handle), flight::capture);
+        return chain.execute(exchange.mutate().response(capture).build())
+                .doFinally(signal -> {
+                    flights.remove(key, flight);
+                    final CachedResponse captured = flight.getCaptured();
+                    if (Objects.nonNull(captured)) {
+                        responseCache.put(key, captured);
+                    }
+                    flight.land();
+                });
+    }
+
+    @Override
+    public Boolean skip(final ServerWebExchange exchange) {
+        return exchange.getRequest().getMethod() != HttpMethod.GET;
+    }
+
+    @Override
+    public String named() {
+        return PluginEnum.CACHE.getName();
+    }
+
+    @Override
+    public PluginTypeEnum pluginType() {
+        return PluginTypeEnum.FUNCTION;
+    }
+
+    @Override
+    public int getOrder() {
+        return PluginEnum.CACHE.getCode();
+    }
+}
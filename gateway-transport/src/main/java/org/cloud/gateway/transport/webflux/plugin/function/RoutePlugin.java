@@ -17,28 +17,51 @@
  */
 
 package org.cloud.gateway.transport.webflux.plugin.function;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.cloud.gateway.transport.webflux.balance.LoadBalance;
+import org.cloud.gateway.transport.webflux.balance.UpstreamStats;
+import org.cloud.gateway.transport.webflux.balance.factory.LoadBalanceFactory;
+import org.cloud.gateway.transport.webflux.condition.ConditionMatchers;
+import org.cloud.gateway.transport.webflux.health.UpstreamHealthChecker;
 import org.cloud.gateway.transport.webflux.plugin.AbstractPlugin;
 import org.cloud.gateway.transport.webflux.plugin.PluginChain;
+import org.cloud.gateway.transport.webflux.plugin.before.ServerWebExchangeUtils;
+import org.cloud.gateway.transport.webflux.resilience.CircuitBreaker;
+import org.cloud.gateway.transport.webflux.resilience.RetryBudget;
+import org.cloud.gateway.transport.webflux.resilience.UpstreamRejectedException;
 import org.cloud.gateway.common.constant.Constants;
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
 import org.cloud.gateway.common.dto.convert.rule.DivideRuleHandle;
 import org.cloud.gateway.common.dto.zk.RuleZkDTO;
 import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
 import org.cloud.gateway.common.enums.PluginEnum;
 import org.cloud.gateway.common.enums.PluginTypeEnum;
-import org.cloud.gateway.common.utils.GSONUtils;
+import org.cloud.gateway.common.utils.LogUtils;
 import org.cloud.gateway.cache.UpstreamCacheManager;
 import org.cloud.gateway.cache.ZookeeperCacheManager;
-import org.cloud.gateway.webflux.request.RequestDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-
+import java.net.ConnectException;
+import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class RoutePlugin extends AbstractPlugin {
@@ -46,75 +69,146 @@ public class RoutePlugin extends AbstractPlugin {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RoutePlugin.class);
 
-    private final UpstreamCacheManager upstreamCacheManager;
+    private static final String HTTP_PROTOCOL = "http://";
 
+    /**
+     * methods that may be sent twice, a request that may already have reached the upstream is only
+     * retried for these.
+     */
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD,
+            HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.TRACE);
 
-    public RoutePlugin(final ZookeeperCacheManager zookeeperCacheManager, final UpstreamCacheManager upstreamCacheManager) {
-        super(zookeeperCacheManager);
-        this.upstreamCacheManager = upstreamCacheManager;
-    }
+    /**
+     * how many times a retry asks the load balance before walking the list for an upstream not tried yet.
+     */
+    private static final int MAX_PICKS = 3;
 
-    @Override
-    protected Mono<Void> doExecute(final ServerWebExchange exchange, final PluginChain chain, final SelectorZkDTO selector, final RuleZkDTO rule) {
-        final RequestDTO requestDTO = exchange.getAttribute(Constants.REQUESTDTO);
+    private final UpstreamCacheManager upstreamCacheManager;
 
-        final DivideRuleHandle ruleHandle = GSONUtils.getInstance().fromJson(rule.getHandle(), DivideRuleHandle.class);
 
+    private final WebClient webClient;
 
+    private final RetryBudget retryBudget;
 
+    private final UpstreamHealthChecker upstreamHealthChecker;
 
+    public RoutePlugin(final ZookeeperCacheManager zookeeperCacheManager, final UpstreamCacheManager upstreamCacheManager,
+                       final WebClient webClient, final RetryBudget retryBudget,
+                       final UpstreamHealthChecker upstreamHealthChecker) {
+        super(zookeeperCacheManager);
+        this.upstreamCacheManager = upstreamCacheManager;
+        this.webClient = webClient;
+        this.retryBudget = retryBudget;
+        this.upstreamHealthChecker = upstreamHealthChecker;
     }
 
-    private Mono<Void> proxyRequest(ServerWebExchange exchange,PluginChain chain,String url,Integer timeout){
-
-        ServerHttpResponse gatewayResp=exchange.getResponse();
-
-        WebClient.RequestHeadersSpec<?> headersSpec=httpReqBuild(exchange,url);
-        return headersSpec.exchange()
-                .timeout(Duration.ofMillis(timeout)).doOnError(ex->{
-                   /* if(ex instanceof TimeoutException){
-
-
-                    }else{
-
-                    } */
-                }).flatMap(backendResponse->{
-                    gatewayResp.setStatusCode(backendResponse.statusCode());
-                    gatewayResp.getHeaders().putAll(backendResponse.headers().asHttpHeaders());
-                    exchange.getAttributes().put("",backendResponse);
-                    return chain.execute(exchange);
-                });
+    @Override
+    protected Mono<Void> doExecute(final ServerWebExchange exchange, final PluginChain chain, final SelectorZkDTO selector, final RuleZkDTO rule) {
+        final DivideRuleHandle ruleHandle = rule.acquireHandle(DivideRuleHandle.class);
+        final List<DivideUpstream> upstreams = upstreamCacheManager.findUpstreamListBySelectorId(selector.getId());
+        if (Objects.isNull(ruleHandle) || CollectionUtils.isEmpty(upstreams)) {
+            LogUtils.error(LOGGER, "divide upstream configuration error：{}", rule::toString);
+            return chain.execute(exchange);
+        }
+        final List<DivideUpstream> upstreamList = upstreamHealthChecker.available(upstreams);
+        final LoadBalance loadBalance = LoadBalanceFactory.of(ruleHandle.getLoadBalance());
+        final String balanceKey = balanceKey(exchange, ruleHandle);
+        final DivideUpstream divideUpstream = loadBalance.select(upstreamList, balanceKey);
+        if (Objects.isNull(divideUpstream)) {
+            LogUtils.error(LOGGER, () -> "divide has no upstream");
+            return chain.execute(exchange);
+        }
+        retryBudget.deposit();
+        final UpstreamCall call = new UpstreamCall(exchange, rule, ruleHandle, upstreamList, loadBalance, balanceKey);
+        return call.start(divideUpstream).flatMap(backendResponse -> {
+            exchange.getAttributes().put(Constants.CLIENT_RESPONSE_ATTR, backendResponse);
+            return chain.execute(exchange);
+        });
     }
 
-    WebClient webClient=WebClient.create();
-
-    private WebClient.RequestHeadersSpec<?> httpReqBuild(ServerWebExchange exchange,String url){
-        HttpMethod method=exchange.getRequest().getMethod();
-        WebClient.RequestBodySpec bodySpec=this.webClient.method(method).uri(url).headers(httpHeaders->{
-           httpHeaders.addAll(exchange.getRequest().getHeaders());
-            httpHeaders.remove(httpHeaders.HOST);
-        });
-        WebClient.RequestHeadersSpec headersSpec;
-        if(requiresIsNeedBody(method)){
-            String bodyString=exchange.getAttribute("");
-            headersSpec=bodySpec.syncBody(bodyString);
-        }else{
-            headersSpec=bodySpec;
+    /**
+     * the client ip, or the configured hash header when the rule has one.
+     */
+    private String balanceKey(final ServerWebExchange exchange, final DivideRuleHandle ruleHandle) {
+        if (StringUtils.isNotBlank(ruleHandle.getHashHeader())) {
+            final String key = exchange.getRequest().getHeaders().getFirst(ruleHandle.getHashHeader());
+            if (StringUtils.isNotBlank(key)) {
+                return key;
+            }
         }
+        return ConditionMatchers.acquireIp(exchange);
+    }
 
-        return headersSpec;
+    private String buildRealUrl(final ServerWebExchange exchange, final DivideUpstream divideUpstream) {
+        final String protocol = StringUtils.defaultIfBlank(divideUpstream.getProtocol(), HTTP_PROTOCOL);
+        final URI uri = exchange.getRequest().getURI();
+        final StringBuilder url = new StringBuilder(protocol).append(divideUpstream.getUpstreamUrl());
+        if (Objects.nonNull(uri.getRawPath())) {
+            url.append(uri.getRawPath());
+        }
+        if (Objects.nonNull(uri.getRawQuery())) {
+            url.append('?').append(uri.getRawQuery());
+        }
+        return url.toString();
     }
 
+    /**
+     * send the request to one upstream, through the circuit breaker and bulkhead of that upstream for the rule.
+     * a 5xx answer counts as a failure, for the breaker, for outlier detection and for the upstream latency,
+     * which a failure charges with the timeout.
+     */
+    private Mono<ClientResponse> proxyRequest(final ServerWebExchange exchange, final RuleZkDTO rule,
+                                              final DivideRuleHandle ruleHandle, final DivideUpstream divideUpstream,
+                                              final Integer timeout) {
+        final UpstreamStats stats = UpstreamStats.of(divideUpstream);
+        final CircuitBreaker breaker = CircuitBreaker.of(rule.getId(), divideUpstream, ruleHandle);
+        final WebClient.RequestHeadersSpec<?> headersSpec = httpReqBuild(exchange, buildRealUrl(exchange, divideUpstream));
+        return Mono.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                return Mono.error(new UpstreamRejectedException("upstream rejected :" + divideUpstream.getUpstreamUrl()));
+            }
+            final long start = stats.begin();
+            final long penalty = TimeUnit.MILLISECONDS.toNanos(timeout);
+            return headersSpec.exchange()
+                    .timeout(Duration.ofMillis(timeout))
+                    .doOnSuccess(response -> {
+                        if (Objects.nonNull(response) && response.statusCode().is5xxServerError()) {
+                            breaker.onError();
+                            upstreamHealthChecker.onError(divideUpstream);
+                            stats.onError(start, penalty);
+                        } else {
+                            breaker.onSuccess();
+                            upstreamHealthChecker.onSuccess(divideUpstream);
+                            stats.onSuccess(start);
+                        }
+                    })
+                    .doOnError(error -> {
+                        breaker.onError();
+                        upstreamHealthChecker.onError(divideUpstream);
+                        stats.onError(start, penalty);
+                    })
+                    .doOnCancel(breaker::release)
+                    .doFinally(signal -> stats.end());
+        });
+    }
 
-    private boolean requiresIsNeedBody(HttpMethod method){
-        switch(method){
-            case PUT:
-            case POST:
-            case PATCH:
-                return true;
-            default:
-                return false;
+    /**
+     * build the upstream request.
+     * the body is piped from the client request as it arrives, so upstream writes are backpressured by the
+     * client and nothing is decoded; when a plugin had it cached, the request serves the cached buffers instead.
+     */
+    private WebClient.RequestHeadersSpec<?> httpReqBuild(final ServerWebExchange exchange, final String url) {
+        final ServerHttpRequest request = exchange.getRequest();
+        final HttpMethod method = request.getMethod();
+        final WebClient.RequestBodySpec bodySpec = this.webClient.method(method).uri(URI.create(url))
+                .headers(httpHeaders -> {
+                    httpHeaders.addAll(request.getHeaders());
+                    httpHeaders.remove(HttpHeaders.HOST);
+                });
+        if (ServerWebExchangeUtils.hasBody(method)) {
+            return bodySpec.body(BodyInserters.fromDataBuffers(request.getBody()));
         }
+        return bodySpec;
     }
 
     @Override
@@ -125,8 +219,7 @@ public class RoutePlugin extends AbstractPlugin {
 
     @Override
     public Boolean skip(final ServerWebExchange exchange) {
-
-        return null;
+        return false;
     }
 
 
@@ -140,4 +233,130 @@ public class RoutePlugin extends AbstractPlugin {
         return PluginEnum.DIVIDE.getCode();
     }
 
+    /**
+     * one proxied request with its retries and its hedge.
+     *
+     * <p>A failed attempt is retried on an upstream not tried yet, chosen by the rule load balance, while the
+     * rule allows more retries and the {@linkplain RetryBudget} has a token. A request that may have reached
+     * the upstream is only retried when its method is idempotent, one refused by a circuit breaker or bulkhead
+     * is always retryable.
+     *
+     * <p>A request with a body is only retried when {@code CachedBodyPlugin} has cached the body, which is then
+     * replayed; a streamed body can not be sent twice, so such a request gets no retry. Only gets are hedged:
+     * a second request goes to another upstream once the first upstream has taken longer than its p95 latency.
+     * The first response wins, the other attempt is cancelled, or its body drained when it answered as well.
+     */
+    private final class UpstreamCall {
+
+        private final ServerWebExchange exchange;
+
+        private final RuleZkDTO rule;
+
+        private final DivideRuleHandle ruleHandle;
+
+        private final List<DivideUpstream> upstreamList;
+
+        private final LoadBalance loadBalance;
+
+        private final String balanceKey;
+
+        private final Integer timeout;
+
+        private final List<DivideUpstream> tried = new ArrayList<>(2);
+
+        UpstreamCall(final ServerWebExchange exchange, final RuleZkDTO rule, final DivideRuleHandle ruleHandle,
+                     final List<DivideUpstream> upstreamList, final LoadBalance loadBalance, final String balanceKey) {
+            this.exchange = exchange;
+            this.rule = rule;
+            this.ruleHandle = ruleHandle;
+            this.upstreamList = upstreamList;
+            this.loadBalance = loadBalance;
+            this.balanceKey = balanceKey;
+            this.timeout = Objects.isNull(ruleHandle.getTimeout()) ? Constants.TIME_OUT : ruleHandle.getTimeout();
+        }
+
+        Mono<ClientResponse> start(final DivideUpstream first) {
+            synchronized (this) {
+                tried.add(first);
+            }
+            final long hedgeDelay = UpstreamStats.of(first).getP95Nanos();
+            if (!ruleHandle.isHedged() || exchange.getRequest().getMethod() != HttpMethod.GET
+                    || upstreamList.size() < 2 || hedgeDelay == 0) {
+                return send(first, 0);
+            }
+            final Mono<ClientResponse> hedge = Mono.delay(Duration.ofNanos(hedgeDelay))
+                    .flatMap(tick -> retryBudget.tryWithdraw() ? send(next(), ruleHandle.getRetry()) : Mono.never());
+            final AtomicBoolean answered = new AtomicBoolean();
+            return Mono.first(claim(send(first, 0), answered), claim(hedge, answered));
+        }
+
+        /**
+         * the response of an attempt, unless the other attempt has answered first: then this response is
+         * drained, which releases its connection, and the attempt never completes so it can not win the race.
+         */
+        private Mono<ClientResponse> claim(final Mono<ClientResponse> attempt, final AtomicBoolean answered) {
+            return attempt.flatMap(response -> {
+                if (answered.compareAndSet(false, true)) {
+                    return Mono.just(response);
+                }
+                response.bodyToMono(Void.class).subscribe();
+                return Mono.never();
+            });
+        }
+
+        private Mono<ClientResponse> send(final DivideUpstream divideUpstream, final int retried) {
+            return proxyRequest(exchange, rule, ruleHandle, divideUpstream, timeout).onErrorResume(error -> {
+                if (!retryable(error, retried)) {
+                    return Mono.error(error);
+                }
+                final DivideUpstream next = next();
+                LogUtils.warn(LOGGER, () -> "divide retry on " + next.getUpstreamUrl()
+                        + " after " + error.getMessage());
+                return send(next, retried + 1);
+            });
+        }
+
+        private boolean retryable(final Throwable error, final int retried) {
+            if (retried >= ruleHandle.getRetry()) {
+                return false;
+            }
+            final HttpMethod method = exchange.getRequest().getMethod();
+            if (ServerWebExchangeUtils.hasBody(method)
+                    && Objects.isNull(exchange.getAttribute(Constants.CACHED_REQUEST_BODY_ATTR))) {
+                return false;
+            }
+            if (!(error instanceof ConnectException || error instanceof UpstreamRejectedException)
+                    && !IDEMPOTENT_METHODS.contains(method)) {
+                return false;
+            }
+            return retryBudget.tryWithdraw();
+        }
+
+        /**
+         * the next upstream to try, one not tried yet when there is any.
+         *
+         * <p>Always selected from the shared upstream list: the balances keep their schedules and rings per list,
+         * a list built for one request would get a schedule of its own. A tried upstream is selected again a few
+         * times, then the list is walked from it, for a balance that keeps answering the same one (hash).
+         */
+        private synchronized DivideUpstream next() {
+            DivideUpstream next = loadBalance.select(upstreamList, balanceKey);
+            for (int pick = 1; pick < MAX_PICKS && tried.contains(next); pick++) {
+                next = loadBalance.select(upstreamList, balanceKey);
+            }
+            if (tried.contains(next)) {
+                final int size = upstreamList.size();
+                final int start = upstreamList.indexOf(next);
+                for (int i = 1; i < size; i++) {
+                    final DivideUpstream candidate = upstreamList.get((start + i) % size);
+                    if (!tried.contains(candidate)) {
+                        next = candidate;
+                        break;
+                    }
+                }
+            }
+            tried.add(next);
+            return next;
+        }
+    }
 }
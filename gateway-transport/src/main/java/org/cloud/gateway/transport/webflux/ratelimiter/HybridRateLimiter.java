@@ -0,0 +1,202 @@
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.cloud.gateway.common.utils.LogUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * cluster wide token buckets, decided locally from tokens leased in batches.
+ *
+ * <p>Every node leases about {@code leaseTime} worth of tokens ({@code replenishRate * leaseTime}, at most
+ * {@code burstCapacity}) from the shared {@linkplain TokenLeaseSource} and spends them with a CAS per request.
+ * The next lease is requested in the background once {@code refillRatio} of the batch is left, so the source
+ * sees about one call per node and {@code leaseTime} instead of one per request. A request finding no token
+ * waits for the lease in flight, after an empty lease requests are rejected without asking the source until it
+ * has refilled a token. Every batch expires {@code leaseTime} after it was granted, tokens left when the next
+ * batch arrives keep their own expiry and are spent first, which keeps the global rate within one batch per node
+ * of the limit. While the source fails, the {@code fallback} limiter decides and the source is asked again once
+ * per {@code leaseTime}; the failure is logged at most once per {@value #FAILURE_LOG_INTERVAL} millis.
+ */
+public final class HybridRateLimiter implements RateLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HybridRateLimiter.class);
+
+    private static final long FAILURE_LOG_INTERVAL = 10000L;
+
+    private final TokenLeaseSource leaseSource;
+
+    private final RateLimiter fallback;
+
+    private final long leaseTime;
+
+    private final double refillRatio;
+
+    private final LoadingCache<String, Lease> leases;
+
+    private final AtomicLong failureLoggedAt = new AtomicLong();
+
+    /**
+     * Instantiates a new hybrid rate limiter.
+     *
+     * @param leaseSource shared token buckets
+     * @param fallback    decides while the lease source fails
+     * @param leaseTime   how long leased tokens stay valid, in millis
+     * @param refillRatio share of a lease left when the next one is requested
+     * @param maxBuckets  most leases kept
+     * @param idleTimeout how long an unused lease is kept, in millis
+     */
+    public HybridRateLimiter(final TokenLeaseSource leaseSource, final RateLimiter fallback, final long leaseTime,
+                             final double refillRatio, final long maxBuckets, final long idleTimeout) {
+        this.leaseSource = leaseSource;
+        this.fallback = fallback;
+        this.leaseTime = leaseTime;
+        this.refillRatio = refillRatio;
+        this.leases = CacheBuilder.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleTimeout, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.from(Lease::new));
+    }
+
+    @Override
+    public Mono<RateLimiterResponse> isAllowed(final String id, final double replenishRate, final double burstCapacity) {
+        final Lease lease = leases.getUnchecked(id);
+        final long now = System.currentTimeMillis();
+        if (lease.failed) {
+            if (now >= lease.retryAt) {
+                refill(id, lease, replenishRate, burstCapacity);
+            }
+            return fallback.isAllowed(id, replenishRate, burstCapacity);
+        }
+        final long left = lease.take(now);
+        if (left >= 0) {
+            if (left < batch(replenishRate, burstCapacity) * refillRatio && now >= lease.emptyUntil) {
+                refill(id, lease, replenishRate, burstCapacity);
+            }
+            return Mono.just(new RateLimiterResponse(true, left));
+        }
+        if (now < lease.emptyUntil) {
+            return Mono.just(RateLimiterResponse.DENIED);
+        }
+        return refill(id, lease, replenishRate, burstCapacity).then(Mono.defer(() -> {
+            if (lease.failed) {
+                return fallback.isAllowed(id, replenishRate, burstCapacity);
+            }
+            final long retried = lease.take(System.currentTimeMillis());
+            return Mono.just(retried >= 0 ? new RateLimiterResponse(true, retried) : RateLimiterResponse.DENIED);
+        }));
+    }
+
+    private long batch(final double replenishRate, final double burstCapacity) {
+        final double perLease = Math.ceil(replenishRate * leaseTime / TimeUnit.SECONDS.toMillis(1));
+        return Math.max(1L, (long) Math.min(perLease, burstCapacity));
+    }
+
+    /**
+     * the lease in flight for the bucket, starting one if there is none.
+     */
+    private Mono<Void> refill(final String id, final Lease lease, final double replenishRate, final double burstCapacity) {
+        Mono<Void> refill = lease.refill;
+        if (refill != null) {
+            return refill;
+        }
+        synchronized (lease) {
+            refill = lease.refill;
+            if (refill != null) {
+                return refill;
+            }
+            refill = leaseSource.lease(id, replenishRate, burstCapacity, batch(replenishRate, burstCapacity))
+                    .doOnNext(granted -> lease.grant(granted, System.currentTimeMillis(), leaseTime, replenishRate))
+                    .doOnError(e -> failed(id, lease, e))
+                    .onErrorResume(e -> Mono.empty())
+                    .doFinally(signal -> lease.refill = null)
+                    .then()
+                    .cache();
+            lease.refill = refill;
+        }
+        refill.subscribe();
+        return refill;
+    }
+
+    private void failed(final String id, final Lease lease, final Throwable error) {
+        final long now = System.currentTimeMillis();
+        lease.retryAt = now + leaseTime;
+        lease.failed = true;
+        final long loggedAt = failureLoggedAt.get();
+        if (now - loggedAt >= FAILURE_LOG_INTERVAL && failureLoggedAt.compareAndSet(loggedAt, now)) {
+            LogUtils.error(LOGGER, "rate limiter lease failed, deciding locally :{}", () -> id + " " + error);
+        }
+    }
+
+    private static final class Lease {
+
+        private final AtomicLong tokens = new AtomicLong();
+
+        private final AtomicLong carried = new AtomicLong();
+
+        private volatile long expiresAt;
+
+        private volatile long carriedUntil;
+
+        private volatile long emptyUntil;
+
+        private volatile boolean failed;
+
+        private volatile long retryAt;
+
+        private volatile Mono<Void> refill;
+
+        /**
+         * spend a token, the ones carried over from the previous batch first.
+         *
+         * @param now current time millis
+         * @return tokens left, -1 if there was none
+         */
+        long take(final long now) {
+            final long fresh = now < expiresAt ? tokens.get() : 0L;
+            if (now < carriedUntil) {
+                final long left = spend(carried);
+                if (left >= 0) {
+                    return left + Math.max(fresh, 0L);
+                }
+            }
+            return now < expiresAt ? spend(tokens) : -1L;
+        }
+
+        private static long spend(final AtomicLong pool) {
+            long current;
+            do {
+                current = pool.get();
+                if (current <= 0) {
+                    return -1L;
+                }
+            } while (!pool.compareAndSet(current, current - 1));
+            return current - 1;
+        }
+
+        /**
+         * add leased tokens, each batch expires {@code leaseTime} after it was granted: what is left of the
+         * previous batch is carried over with its own expiry, not renewed with the new one. an empty lease means
+         * the shared bucket is drained, the source is not asked again before it has refilled a token.
+         */
+        void grant(final long granted, final long now, final long leaseTime, final double replenishRate) {
+            failed = false;
+            if (granted <= 0) {
+                emptyUntil = now + (long) Math.ceil(TimeUnit.SECONDS.toMillis(1) / replenishRate);
+                return;
+            }
+            final long previousExpiry = expiresAt;
+            final long leftover = tokens.getAndSet(granted);
+            carriedUntil = 0L;
+            carried.set(now < previousExpiry ? Math.max(leftover, 0L) : 0L);
+            carriedUntil = previousExpiry;
+            expiresAt = now + leaseTime;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * token buckets in this process, with the semantics of {@code request_rate_lease.lua}.
+ * it stands in for redis when there is none: on a single node, and in tests of {@linkplain HybridRateLimiter}.
+ */
+public final class InMemoryTokenLeaseSource implements TokenLeaseSource {
+
+    private final LoadingCache<String, Bucket> buckets;
+
+    /**
+     * Instantiates a new in memory token lease source.
+     *
+     * @param maxBuckets  most buckets kept
+     * @param idleTimeout how long an unused bucket is kept, in millis
+     */
+    public InMemoryTokenLeaseSource(final long maxBuckets, final long idleTimeout) {
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleTimeout, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.from(Bucket::new));
+    }
+
+    @Override
+    public Mono<Long> lease(final String id, final double replenishRate, final double burstCapacity, final long requested) {
+        return Mono.just(buckets.getUnchecked(id).take(replenishRate, burstCapacity, requested, System.nanoTime()));
+    }
+
+    private static final class Bucket {
+
+        private double tokens = -1;
+
+        private long refreshed;
+
+        synchronized long take(final double replenishRate, final double burstCapacity, final long requested, final long now) {
+            if (tokens < 0) {
+                tokens = burstCapacity;
+            } else {
+                tokens = Math.min(burstCapacity, tokens + (now - refreshed) / 1e9 * replenishRate);
+            }
+            refreshed = now;
+            final long granted = Math.min(requested, (long) Math.floor(tokens));
+            tokens -= granted;
+            return granted;
+        }
+    }
+}
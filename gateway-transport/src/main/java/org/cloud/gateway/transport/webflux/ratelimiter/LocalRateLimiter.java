@@ -0,0 +1,57 @@
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * in-process token buckets, no round trip to redis.
+ *
+ * <p>Every bucket is a single atomic long, the theoretical arrival time of the next request (GCRA): a request
+ * moves it one emission interval ({@code 1 / replenishRate}) ahead and is allowed while it stays within
+ * {@code burstCapacity} intervals of now. That is exactly a token bucket, updated with one CAS and no lock.
+ * Buckets live in a bounded map and are dropped when idle; an idle bucket is full anyway, unless it was
+ * idle for less than {@code burstCapacity / replenishRate}.
+ */
+public final class LocalRateLimiter implements RateLimiter {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LoadingCache<String, AtomicLong> buckets;
+
+    /**
+     * Instantiates a new local rate limiter.
+     *
+     * @param maxBuckets  most buckets kept
+     * @param idleTimeout how long an unused bucket is kept, in millis
+     */
+    public LocalRateLimiter(final long maxBuckets, final long idleTimeout) {
+        this.buckets = CacheBuilder.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleTimeout, TimeUnit.MILLISECONDS)
+                .build(CacheLoader.from(() -> new AtomicLong(Long.MIN_VALUE)));
+    }
+
+    @Override
+    public Mono<RateLimiterResponse> isAllowed(final String id, final double replenishRate, final double burstCapacity) {
+        final long interval = Math.max(1L, (long) (NANOS_PER_SECOND / replenishRate));
+        final long tolerance = (long) (interval * burstCapacity);
+        final AtomicLong arrival = buckets.getUnchecked(id);
+        final long now = System.nanoTime();
+        while (true) {
+            final long current = arrival.get();
+            final long next = Math.max(current, now) + interval;
+            final long backlog = next - now;
+            if (backlog > tolerance) {
+                return Mono.just(RateLimiterResponse.DENIED);
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return Mono.just(new RateLimiterResponse(true, (tolerance - backlog) / interval));
+            }
+        }
+    }
+}
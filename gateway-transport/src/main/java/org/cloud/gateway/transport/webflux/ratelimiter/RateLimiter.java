@@ -0,0 +1,19 @@
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * an engine deciding whether a request fits in its token bucket.
+ */
+public interface RateLimiter {
+
+    /**
+     * take one token from the bucket of {@code id}.
+     *
+     * @param id            bucket id
+     * @param replenishRate tokens added per second
+     * @param burstCapacity most tokens the bucket holds
+     * @return the decision
+     */
+    Mono<RateLimiterResponse> isAllowed(String id, double replenishRate, double burstCapacity);
+}
@@ -0,0 +1,21 @@
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * the decision of a {@linkplain RateLimiter}.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class RateLimiterResponse {
+
+    /**
+     * a rejected request.
+     */
+    public static final RateLimiterResponse DENIED = new RateLimiterResponse(false, 0L);
+
+    private final boolean allowed;
+
+    private final long tokensLeft;
+}
@@ -0,0 +1,41 @@
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * token buckets kept in redis, one {@code request_rate_lease.lua} call per lease.
+ * the keys of a bucket share a hash tag, so the script also runs on a redis cluster.
+ * the connection is the one of {@code spring.redis}, owned by spring.
+ */
+public final class RedisTokenLeaseSource implements TokenLeaseSource {
+
+    private static final RedisScript<Long> LEASE_SCRIPT =
+            RedisScript.of(new ClassPathResource("/META-INF/scripts/request_rate_lease.lua"), Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    /**
+     * Instantiates a new redis token lease source.
+     *
+     * @param redisTemplate redis template
+     */
+    public RedisTokenLeaseSource(final ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Mono<Long> lease(final String id, final double replenishRate, final double burstCapacity, final long requested) {
+        final String prefix = "request_rate_lease.{" + id + "}.";
+        final List<String> keys = Arrays.asList(prefix + "tokens", prefix + "timestamp");
+        return redisTemplate.execute(LEASE_SCRIPT, keys, Arrays.asList(String.valueOf(replenishRate),
+                String.valueOf(burstCapacity), String.valueOf(requested)))
+                .next()
+                .defaultIfEmpty(0L);
+    }
+}
@@ -0,0 +1,20 @@
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * the shared token buckets a {@linkplain HybridRateLimiter} leases batches of tokens from.
+ */
+public interface TokenLeaseSource {
+
+    /**
+     * take up to {@code requested} tokens from the bucket of {@code id}.
+     *
+     * @param id            bucket id
+     * @param replenishRate tokens added per second
+     * @param burstCapacity most tokens the bucket holds
+     * @param requested     tokens wanted
+     * @return tokens granted, between 0 and {@code requested}
+     */
+    Mono<Long> lease(String id, double replenishRate, double burstCapacity, long requested);
+}
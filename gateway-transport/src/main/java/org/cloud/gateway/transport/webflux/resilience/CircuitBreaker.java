@@ -0,0 +1,200 @@
+package org.cloud.gateway.transport.webflux.resilience;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.dto.convert.HystrixHandle;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * circuit breaker and bulkhead of one upstream of one rule, configured by the rule {@linkplain HystrixHandle}.
+ *
+ * <p>Outcomes are counted in a ring of one second buckets covering the last {@value #WINDOW_SECONDS} seconds.
+ * Every bucket is one {@code long} packing its second, its failures and its total, updated by CAS, so recording
+ * an outcome never locks. Once the window holds {@code requestVolumeThreshold} requests of which at least
+ * {@code errorThresholdPercentage} percent failed, the circuit opens and requests are rejected at once; after
+ * {@code sleepWindowInMilliseconds} a single trial request is let through, its outcome closes or reopens it;
+ * a trial cancelled or turned away by the bulkhead reopens it for another sleep window.
+ * The bulkhead rejects requests beyond {@code maxConcurrentRequests} in flight.
+ */
+public final class CircuitBreaker {
+
+    private static final int WINDOW_SECONDS = 10;
+
+    private static final int CLOSED = 0;
+
+    private static final int OPEN = 1;
+
+    private static final int HALF_OPEN = 2;
+
+    private static final int COUNT_BITS = 20;
+
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private static final long SECOND_MASK = (1L << (64 - 2 * COUNT_BITS)) - 1;
+
+    private static final Cache<String, CircuitBreaker> BREAKERS = CacheBuilder.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    private final HystrixHandle handle;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(WINDOW_SECONDS);
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+
+    private final AtomicLong openedAt = new AtomicLong();
+
+    private final AtomicInteger concurrent = new AtomicInteger();
+
+    private CircuitBreaker(final HystrixHandle handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * acquire the breaker of an upstream of a rule.
+     * a rule updated in zookeeper comes with a new handle, its breakers then start over with the new settings.
+     *
+     * @param ruleId         rule id
+     * @param divideUpstream upstream
+     * @param handle         settings of the rule
+     * @return breaker
+     */
+    public static CircuitBreaker of(final String ruleId, final DivideUpstream divideUpstream, final HystrixHandle handle) {
+        final String key = ruleId + "@" + divideUpstream.getUpstreamUrl();
+        final CircuitBreaker breaker = BREAKERS.getIfPresent(key);
+        if (Objects.nonNull(breaker) && breaker.handle == handle) {
+            return breaker;
+        }
+        // replaced atomically, so concurrent requests share one breaker instead of each starting their own
+        return BREAKERS.asMap().compute(key, (k, current) ->
+                Objects.nonNull(current) && current.handle == handle ? current : new CircuitBreaker(handle));
+    }
+
+    /**
+     * ask to send a request, every granted request must be followed by exactly one
+     * {@linkplain #onSuccess()}, {@linkplain #onError()} or {@linkplain #release()}.
+     *
+     * @return true if granted
+     */
+    public boolean tryAcquire() {
+        if (!allowRequest()) {
+            return false;
+        }
+        if (concurrent.incrementAndGet() > handle.getMaxConcurrentRequests()) {
+            concurrent.decrementAndGet();
+            if (state.get() == HALF_OPEN) {
+                trip(HALF_OPEN);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * the request succeeded.
+     */
+    public void onSuccess() {
+        concurrent.decrementAndGet();
+        record(false);
+        if (state.get() == HALF_OPEN && state.compareAndSet(HALF_OPEN, CLOSED)) {
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                buckets.set(i, 0L);
+            }
+        }
+    }
+
+    /**
+     * the request failed.
+     */
+    public void onError() {
+        concurrent.decrementAndGet();
+        record(true);
+        final int current = state.get();
+        if (current == HALF_OPEN) {
+            trip(HALF_OPEN);
+        } else if (current == CLOSED && overThreshold()) {
+            trip(CLOSED);
+        }
+    }
+
+    /**
+     * the request ended without an outcome, e.g. it was cancelled.
+     */
+    public void release() {
+        concurrent.decrementAndGet();
+        if (state.get() == HALF_OPEN) {
+            trip(HALF_OPEN);
+        }
+    }
+
+    private boolean allowRequest() {
+        final int current = state.get();
+        if (current == CLOSED) {
+            return true;
+        }
+        if (current == OPEN && System.currentTimeMillis() - openedAt.get() >= handle.getSleepWindowInMilliseconds()) {
+            return state.compareAndSet(OPEN, HALF_OPEN);
+        }
+        return false;
+    }
+
+    private void trip(final int from) {
+        openedAt.set(System.currentTimeMillis());
+        state.compareAndSet(from, OPEN);
+    }
+
+    private void record(final boolean failure) {
+        final long second = (System.currentTimeMillis() / 1000) & SECOND_MASK;
+        final int index = (int) (second % WINDOW_SECONDS);
+        long current;
+        long next;
+        do {
+            current = buckets.get(index);
+            long failures = 0;
+            long total = 0;
+            if (secondOf(current) == second) {
+                failures = failuresOf(current);
+                total = totalOf(current);
+            }
+            if (total < COUNT_MASK) {
+                total++;
+                if (failure) {
+                    failures++;
+                }
+            }
+            next = (second << (2 * COUNT_BITS)) | (failures << COUNT_BITS) | total;
+        } while (!buckets.compareAndSet(index, current, next));
+    }
+
+    private boolean overThreshold() {
+        final long second = (System.currentTimeMillis() / 1000) & SECOND_MASK;
+        long failures = 0;
+        long total = 0;
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            final long bucket = buckets.get(i);
+            if (((second - secondOf(bucket)) & SECOND_MASK) < WINDOW_SECONDS) {
+                failures += failuresOf(bucket);
+                total += totalOf(bucket);
+            }
+        }
+        return total >= handle.getRequestVolumeThreshold() && failures * 100 >= total * handle.getErrorThresholdPercentage();
+    }
+
+    private static long secondOf(final long bucket) {
+        return bucket >>> (2 * COUNT_BITS);
+    }
+
+    private static long failuresOf(final long bucket) {
+        return (bucket >>> COUNT_BITS) & COUNT_MASK;
+    }
+
+    private static long totalOf(final long bucket) {
+        return bucket & COUNT_MASK;
+    }
+}
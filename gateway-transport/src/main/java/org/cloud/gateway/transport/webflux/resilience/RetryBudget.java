@@ -0,0 +1,60 @@
+package org.cloud.gateway.transport.webflux.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * global budget bounding retries (and hedged requests) to a ratio of the requests.
+ *
+ * <p>Every request deposits {@code ratio} of a token, every retry withdraws a whole one, so under overload
+ * retries can add at most {@code ratio} extra load no matter how many requests fail. {@code minRetries}
+ * tokens are always allowed, so a quiet gateway can still retry. The balance is a single atomic counter in
+ * thousandths of a token.
+ */
+public final class RetryBudget {
+
+    private static final long UNIT = 1000L;
+
+    private final long deposit;
+
+    private final long capacity;
+
+    private final AtomicLong balance;
+
+    /**
+     * Instantiates a new retry budget.
+     *
+     * @param ratio      retries allowed per request
+     * @param minRetries retries always allowed, also the most tokens saved up
+     */
+    public RetryBudget(final double ratio, final int minRetries) {
+        this.deposit = Math.max(0L, Math.round(ratio * UNIT));
+        this.capacity = Math.max(UNIT, minRetries * UNIT);
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /**
+     * a request is sent, earn its share of a retry.
+     */
+    public void deposit() {
+        if (deposit == 0 || balance.get() >= capacity) {
+            return;
+        }
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(capacity, current + amount));
+    }
+
+    /**
+     * try to spend a retry.
+     *
+     * @return true if the retry may be sent
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        return true;
+    }
+}
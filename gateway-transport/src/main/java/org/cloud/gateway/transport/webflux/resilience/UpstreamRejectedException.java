@@ -0,0 +1,21 @@
+package org.cloud.gateway.transport.webflux.resilience;
+
+import org.cloud.gateway.common.exception.SoulException;
+
+/**
+ * a request was not sent because its upstream circuit is open or its bulkhead is full.
+ * nothing reached the upstream, so the request is always safe to retry elsewhere.
+ */
+public class UpstreamRejectedException extends SoulException {
+
+    private static final long serialVersionUID = -4135384474713722914L;
+
+    /**
+     * Instantiates a new upstream rejected exception.
+     *
+     * @param message the message
+     */
+    public UpstreamRejectedException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+-- leases up to `requested` tokens from a token bucket shared by the gateway nodes.
+-- the bucket refills continuously at `rate` tokens per second up to `capacity`, the clock is the redis one.
+redis.replicate_commands()
+
+local tokens_key = KEYS[1]
+local timestamp_key = KEYS[2]
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+local time = redis.call("time")
+local now = tonumber(time[1]) + tonumber(time[2]) / 1000000
+
+local fill_time = capacity / rate
+local ttl = math.floor(fill_time * 2) + 1
+
+local last_tokens = tonumber(redis.call("get", tokens_key))
+if last_tokens == nil then
+  last_tokens = capacity
+end
+
+local last_refreshed = tonumber(redis.call("get", timestamp_key))
+if last_refreshed == nil then
+  last_refreshed = 0
+end
+
+local delta = math.max(0, now - last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens + (delta * rate))
+local granted = math.min(requested, math.floor(filled_tokens))
+
+redis.call("setex", tokens_key, ttl, filled_tokens - granted)
+redis.call("setex", timestamp_key, ttl, now)
+
+return granted
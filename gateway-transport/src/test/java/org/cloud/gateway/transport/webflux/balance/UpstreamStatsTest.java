@@ -0,0 +1,84 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.balance;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * latency accounting of {@linkplain UpstreamStats}.
+ */
+public class UpstreamStatsTest {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(3);
+
+    @Test
+    public void newUpstreamIsNotFree() {
+        final UpstreamStats stats = stats();
+        assertThat(stats.getCost()).isGreaterThan(0D);
+        assertThat(stats.getP95Nanos()).isZero();
+    }
+
+    @Test
+    public void failureCostsAtLeastTheTimeout() {
+        final UpstreamStats failing = stats();
+        failing.onError(failing.begin(), TIMEOUT);
+        failing.end();
+        final UpstreamStats answering = stats();
+        answering.onSuccess(answering.begin());
+        answering.end();
+        assertThat(failing.getCost()).isGreaterThanOrEqualTo(TIMEOUT);
+        assertThat(failing.getCost()).isGreaterThan(answering.getCost());
+    }
+
+    @Test
+    public void failuresAreLeftOutOfTheP95() {
+        final UpstreamStats stats = stats();
+        stats.onSuccess(stats.begin());
+        stats.end();
+        final long p95 = stats.getP95Nanos();
+        for (int i = 0; i < 10; i++) {
+            stats.onError(stats.begin(), TIMEOUT);
+            stats.end();
+        }
+        assertThat(stats.getP95Nanos()).isEqualTo(p95);
+    }
+
+    @Test
+    public void activeCountsRequestsInFlight() {
+        final UpstreamStats stats = stats();
+        final double idle = stats.getCost();
+        stats.begin();
+        assertThat(stats.getActive()).isEqualTo(1);
+        assertThat(stats.getCost()).isEqualTo(idle * 2);
+        stats.end();
+        assertThat(stats.getActive()).isZero();
+    }
+
+    private static UpstreamStats stats() {
+        final DivideUpstream divideUpstream = new DivideUpstream();
+        divideUpstream.setUpstreamUrl(UUID.randomUUID().toString());
+        return UpstreamStats.of(divideUpstream);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.balance.spi;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * the hash ring of {@linkplain HashLoadBalance}.
+ */
+public class HashLoadBalanceTest {
+
+    private static final int KEYS = 10000;
+
+    private final HashLoadBalance loadBalance = new HashLoadBalance();
+
+    @Test
+    public void sameKeySameUpstream() {
+        final List<DivideUpstream> upstreams = RoundRobinLoadBalanceTest.upstreams(1, 1, 1, 1);
+        final List<DivideUpstream> rebuilt = new ArrayList<>(upstreams);
+        for (int i = 0; i < 100; i++) {
+            final String key = "10.0.0." + i;
+            final DivideUpstream upstream = loadBalance.select(upstreams, key);
+            assertThat(loadBalance.select(upstreams, key)).isSameAs(upstream);
+            assertThat(loadBalance.select(rebuilt, key)).isSameAs(upstream);
+        }
+    }
+
+    @Test
+    public void keysSpreadOverTheRing() {
+        final List<DivideUpstream> upstreams = RoundRobinLoadBalanceTest.upstreams(1, 1, 1, 1);
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(loadBalance.select(upstreams, "key-" + i).getUpstreamUrl(), 1, Integer::sum);
+        }
+        assertThat(counts).hasSize(4);
+        counts.values().forEach(count -> assertThat(count).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10));
+    }
+
+    @Test
+    public void removingAnUpstreamOnlyMovesItsKeys() {
+        final List<DivideUpstream> upstreams = RoundRobinLoadBalanceTest.upstreams(1, 1, 1, 1);
+        final List<DivideUpstream> remaining = new ArrayList<>(upstreams);
+        final DivideUpstream removed = remaining.remove(2);
+        for (int i = 0; i < KEYS; i++) {
+            final String key = "key-" + i;
+            final DivideUpstream before = loadBalance.select(upstreams, key);
+            final DivideUpstream after = loadBalance.select(remaining, key);
+            if (before != removed) {
+                assertThat(after).as(key).isSameAs(before);
+            }
+        }
+    }
+
+    @Test
+    public void requestWithoutKeyGetsAnyUpstream() {
+        final List<DivideUpstream> upstreams = RoundRobinLoadBalanceTest.upstreams(1, 1);
+        assertThat(upstreams).contains(loadBalance.select(upstreams, null), loadBalance.select(upstreams, ""));
+    }
+}
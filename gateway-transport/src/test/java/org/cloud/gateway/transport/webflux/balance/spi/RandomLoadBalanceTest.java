@@ -0,0 +1,71 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.balance.spi;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * the distribution of {@linkplain RandomLoadBalance}.
+ */
+public class RandomLoadBalanceTest {
+
+    private static final int SAMPLES = 100000;
+
+    private final RandomLoadBalance loadBalance = new RandomLoadBalance();
+
+    @Test
+    public void picksInProportionToWeight() {
+        final Map<String, Integer> counts = sample(RoundRobinLoadBalanceTest.upstreams(6, 3, 1));
+        assertThat(share(counts, "a")).isCloseTo(0.6D, within(0.02D));
+        assertThat(share(counts, "b")).isCloseTo(0.3D, within(0.02D));
+        assertThat(share(counts, "c")).isCloseTo(0.1D, within(0.02D));
+    }
+
+    @Test
+    public void upstreamsWithoutWeightAreLeftOut() {
+        final Map<String, Integer> counts = sample(RoundRobinLoadBalanceTest.upstreams(1, 0, 1));
+        assertThat(counts).doesNotContainKey("b");
+    }
+
+    @Test
+    public void picksUniformlyWhenNoneHasWeight() {
+        final Map<String, Integer> counts = sample(RoundRobinLoadBalanceTest.upstreams(0, 0));
+        assertThat(share(counts, "a")).isCloseTo(0.5D, within(0.02D));
+    }
+
+    private Map<String, Integer> sample(final List<DivideUpstream> upstreams) {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            counts.merge(loadBalance.select(upstreams, null).getUpstreamUrl(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static double share(final Map<String, Integer> counts, final String url) {
+        return counts.getOrDefault(url, 0) / (double) SAMPLES;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.balance.spi;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * the schedules of {@linkplain RoundRobinLoadBalance}.
+ */
+public class RoundRobinLoadBalanceTest {
+
+    private final RoundRobinLoadBalance loadBalance = new RoundRobinLoadBalance();
+
+    @Test
+    public void followsTheSmoothWeightedOrder() {
+        final List<DivideUpstream> upstreams = upstreams(5, 1, 1);
+        final StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 14; i++) {
+            order.append(loadBalance.select(upstreams, null).getUpstreamUrl());
+        }
+        assertThat(order.toString()).isEqualTo("aabacaaaabacaa");
+    }
+
+    @Test
+    public void weightsAreReducedByTheirCommonDivisor() {
+        final List<DivideUpstream> upstreams = upstreams(200, 100);
+        final StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            order.append(loadBalance.select(upstreams, null).getUpstreamUrl());
+        }
+        assertThat(order.toString()).isEqualTo("abaaba");
+    }
+
+    @Test
+    public void largeWeightsAreScaledDownInProportion() {
+        // reduced weights past 32768 used to overflow once scaled to the schedule length
+        final List<DivideUpstream> upstreams = upstreams(100000, 1);
+        int a = 0;
+        for (int i = 0; i < 1 << 16; i++) {
+            if ("a".equals(loadBalance.select(upstreams, null).getUpstreamUrl())) {
+                a++;
+            }
+        }
+        // 100000 : 1 scales to 65535 : 1, one full schedule
+        assertThat(a).isEqualTo((1 << 16) - 1);
+    }
+
+    @Test
+    public void upstreamsWithoutWeightAreLeftOut() {
+        final List<DivideUpstream> upstreams = upstreams(1, 0, 1);
+        for (int i = 0; i < 10; i++) {
+            assertThat(loadBalance.select(upstreams, null).getUpstreamUrl()).isNotEqualTo("b");
+        }
+    }
+
+    @Test
+    public void upstreamsShareTheLoadWhenNoneHasWeight() {
+        final List<DivideUpstream> upstreams = upstreams(0, 0, 0);
+        final StringBuilder order = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            order.append(loadBalance.select(upstreams, null).getUpstreamUrl());
+        }
+        assertThat(order.toString()).isEqualTo("abcabc");
+    }
+
+    @Test
+    public void concurrentSelectionsKeepTheWeights() throws InterruptedException {
+        final List<DivideUpstream> upstreams = upstreams(3, 2, 1);
+        final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        final int threads = 4;
+        final int perThread = 6000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counts.computeIfAbsent(loadBalance.select(upstreams, null).getUpstreamUrl(), k -> new LongAdder())
+                            .increment();
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        assertThat(counts.get("a").sum()).isEqualTo(12000L);
+        assertThat(counts.get("b").sum()).isEqualTo(8000L);
+        assertThat(counts.get("c").sum()).isEqualTo(4000L);
+    }
+
+    @Test
+    public void singleUpstreamIsAlwaysSelected() {
+        final List<DivideUpstream> upstreams = Arrays.asList(upstreams(0).get(0));
+        assertThat(loadBalance.select(upstreams, null)).isSameAs(upstreams.get(0));
+    }
+
+    /**
+     * upstreams named a, b, c... with the given weights.
+     */
+    static List<DivideUpstream> upstreams(final int... weights) {
+        final List<DivideUpstream> upstreams = new ArrayList<>(weights.length);
+        for (int i = 0; i < weights.length; i++) {
+            final DivideUpstream upstream = new DivideUpstream();
+            upstream.setUpstreamUrl(String.valueOf((char) ('a' + i)));
+            upstream.setWeight(weights[i]);
+            upstreams.add(upstream);
+        }
+        return upstreams;
+    }
+}
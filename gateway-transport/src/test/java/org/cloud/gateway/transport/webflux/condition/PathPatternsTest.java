@@ -0,0 +1,53 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.junit.Test;
+import org.springframework.util.AntPathMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@linkplain PathPatterns} must agree with {@linkplain AntPathMatcher}, fast path or not.
+ */
+public class PathPatternsTest {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private static final String[] PATTERNS = {"/a/b", "/a/**", "/a/b*", "/**", "/a/*/c", "/a/{id}", "/a?", "/a/b/**",
+        "/*"};
+
+    private static final String[] PATHS = {"/", "/a", "/a/", "/a/b", "/a/bc", "/a/b/", "/a/b/c", "/a/bc/d", "/ab",
+        "/a//b", "//a/b", "/a/x/c", "/b"};
+
+    @Test
+    public void agreesWithAntPathMatcher() {
+        for (String pattern : PATTERNS) {
+            for (String path : PATHS) {
+                assertThat(PathPatterns.of(pattern).test(path)).as(pattern + " " + path)
+                        .isEqualTo(PATH_MATCHER.match(pattern, path));
+            }
+        }
+    }
+
+    @Test
+    public void compiledPatternsAreShared() {
+        assertThat(PathPatterns.of("/a/**")).isSameAs(PathPatterns.of("/a/**"));
+    }
+}
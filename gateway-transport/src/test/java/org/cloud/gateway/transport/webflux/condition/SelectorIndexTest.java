@@ -0,0 +1,193 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.cloud.gateway.common.dto.zk.ConditionZkDTO;
+import org.cloud.gateway.common.dto.zk.SelectorZkDTO;
+import org.cloud.gateway.common.enums.MatchModeEnum;
+import org.cloud.gateway.common.enums.OperatorEnum;
+import org.cloud.gateway.common.enums.ParamTypeEnum;
+import org.cloud.gateway.common.enums.SelectorTypeEnum;
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@linkplain SelectorIndex} must pick the same selector as a scan of the enabled selectors in order.
+ */
+public class SelectorIndexTest {
+
+    @Test
+    public void earlierSelectorWinsAcrossBuckets() {
+        final List<SelectorZkDTO> selectors = Arrays.asList(
+                selector(MatchModeEnum.AND, uri(OperatorEnum.MATCH, "/api/**")),
+                selector(MatchModeEnum.AND, host("a")),
+                selector(MatchModeEnum.AND, header("x-env", "gray")));
+        final SelectorIndex index = SelectorIndex.build(selectors);
+        assertThat(match(index, exchange("a", "/api/x", "gray"))).isSameAs(selectors.get(0));
+        assertThat(match(index, exchange("a", "/web", "gray"))).isSameAs(selectors.get(1));
+        assertThat(match(index, exchange("b", "/web", "gray"))).isSameAs(selectors.get(2));
+        assertThat(match(index, exchange("b", "/web", null))).isNull();
+    }
+
+    @Test
+    public void unindexedSelectorKeepsItsPosition() {
+        final List<SelectorZkDTO> selectors = Arrays.asList(
+                selector(MatchModeEnum.AND, query("v", "1")),
+                selector(MatchModeEnum.AND, host("a")));
+        final SelectorIndex index = SelectorIndex.build(selectors);
+        assertThat(match(index, exchange("a", "/?v=1", null))).isSameAs(selectors.get(0));
+        assertThat(match(index, exchange("a", "/?v=2", null))).isSameAs(selectors.get(1));
+    }
+
+    @Test
+    public void disabledSelectorsAreSkipped() {
+        final SelectorZkDTO disabled = selector(MatchModeEnum.AND, host("a"));
+        disabled.setEnabled(false);
+        final SelectorZkDTO enabled = selector(MatchModeEnum.AND, uri(OperatorEnum.MATCH, "/**"));
+        final SelectorIndex index = SelectorIndex.build(Arrays.asList(disabled, enabled));
+        assertThat(match(index, exchange("a", "/x", null))).isSameAs(enabled);
+    }
+
+    @Test
+    public void fullFlowAndOrSelectorsAreScanned() {
+        final SelectorZkDTO or = selector(MatchModeEnum.OR, host("a"), uri(OperatorEnum.EQ, "/b"));
+        final SelectorZkDTO fullFlow = selector(MatchModeEnum.AND);
+        fullFlow.setType(SelectorTypeEnum.FULL_FLOW.getCode());
+        final SelectorIndex index = SelectorIndex.build(Arrays.asList(or, fullFlow));
+        assertThat(match(index, exchange("a", "/x", null))).isSameAs(or);
+        assertThat(match(index, exchange("c", "/b", null))).isSameAs(or);
+        assertThat(match(index, exchange("c", "/x", null))).isSameAs(fullFlow);
+    }
+
+    @Test
+    public void indexIsTiedToItsSourceList() {
+        final List<SelectorZkDTO> selectors = Arrays.asList(selector(MatchModeEnum.AND, host("a")));
+        final SelectorIndex index = SelectorIndex.build(selectors);
+        assertThat(index.isBuiltFrom(selectors)).isTrue();
+        assertThat(index.isBuiltFrom(new ArrayList<>(selectors))).isFalse();
+        assertThat(SelectorIndex.EMPTY.match(exchange("a", "/", null))).isNull();
+    }
+
+    @Test
+    public void agreesWithLinearScan() {
+        final Random random = new Random(42);
+        final String[] hosts = {"a", "b", "c"};
+        final String[] paths = {"/", "/api", "/api/v1", "/api/v1/users", "/static/x", "/b"};
+        final String[] patterns = {"/api/**", "/api/v1/*", "/static/**", "/**", "/b"};
+        final String[] envs = {null, "gray", "blue"};
+        for (int round = 0; round < 50; round++) {
+            final List<SelectorZkDTO> selectors = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                final List<ConditionZkDTO> conditions = new ArrayList<>();
+                final int kinds = 1 + random.nextInt(2);
+                for (int k = 0; k < kinds; k++) {
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            conditions.add(host(hosts[random.nextInt(hosts.length)]));
+                            break;
+                        case 1:
+                            conditions.add(uri(OperatorEnum.MATCH, patterns[random.nextInt(patterns.length)]));
+                            break;
+                        case 2:
+                            conditions.add(header("x-env", envs[1 + random.nextInt(envs.length - 1)]));
+                            break;
+                        default:
+                            conditions.add(uri(OperatorEnum.EQ, paths[random.nextInt(paths.length)]));
+                            break;
+                    }
+                }
+                final SelectorZkDTO selector = selector(random.nextInt(4) == 0 ? MatchModeEnum.OR : MatchModeEnum.AND,
+                        conditions.toArray(new ConditionZkDTO[0]));
+                selector.setEnabled(random.nextInt(6) != 0);
+                selectors.add(selector);
+            }
+            final SelectorIndex index = SelectorIndex.build(selectors);
+            for (String host : hosts) {
+                for (String path : paths) {
+                    for (String env : envs) {
+                        final ServerWebExchange exchange = exchange(host, path, env);
+                        assertThat(match(index, exchange)).as(host + path + env)
+                                .isSameAs(linearScan(selectors, exchange));
+                    }
+                }
+            }
+        }
+    }
+
+    private static SelectorZkDTO match(final SelectorIndex index, final ServerWebExchange exchange) {
+        final CompiledSelector matched = index.match(exchange);
+        return Objects.isNull(matched) ? null : matched.getSelector();
+    }
+
+    private static SelectorZkDTO linearScan(final List<SelectorZkDTO> selectors, final ServerWebExchange exchange) {
+        for (SelectorZkDTO selector : selectors) {
+            final ConditionMatcher matcher =
+                    ConditionMatchers.compile(selector.getMatchMode(), selector.getConditionZkDTOList());
+            if (Boolean.TRUE.equals(selector.getEnabled()) && matcher.match(exchange)) {
+                return selector;
+            }
+        }
+        return null;
+    }
+
+    private static ServerWebExchange exchange(final String host, final String path, final String env) {
+        final MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path)
+                .remoteAddress(InetSocketAddress.createUnresolved(host, 8080));
+        if (Objects.nonNull(env)) {
+            request.header("x-env", env);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static SelectorZkDTO selector(final MatchModeEnum matchMode, final ConditionZkDTO... conditions) {
+        final SelectorZkDTO selector = new SelectorZkDTO();
+        selector.setType(SelectorTypeEnum.CUSTOM_FLOW.getCode());
+        selector.setMatchMode(matchMode.getCode());
+        selector.setEnabled(true);
+        selector.setConditionZkDTOList(Arrays.asList(conditions));
+        return selector;
+    }
+
+    private static ConditionZkDTO host(final String host) {
+        return new ConditionZkDTO(ParamTypeEnum.HOST.getName(), OperatorEnum.EQ.getAlias(), null, host);
+    }
+
+    private static ConditionZkDTO uri(final OperatorEnum operator, final String path) {
+        return new ConditionZkDTO(ParamTypeEnum.URI.getName(), operator.getAlias(), null, path);
+    }
+
+    private static ConditionZkDTO header(final String name, final String value) {
+        return new ConditionZkDTO(ParamTypeEnum.HEADER.getName(), OperatorEnum.EQ.getAlias(), name, value);
+    }
+
+    private static ConditionZkDTO query(final String name, final String value) {
+        return new ConditionZkDTO(ParamTypeEnum.QUERY.getName(), OperatorEnum.EQ.getAlias(), name, value);
+    }
+}
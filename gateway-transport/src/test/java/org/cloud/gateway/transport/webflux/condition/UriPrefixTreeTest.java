@@ -0,0 +1,135 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+
+package org.cloud.gateway.transport.webflux.condition;
+
+import org.cloud.gateway.common.dto.zk.ConditionZkDTO;
+import org.cloud.gateway.common.enums.OperatorEnum;
+import org.cloud.gateway.common.enums.ParamTypeEnum;
+import org.junit.Test;
+import org.springframework.util.AntPathMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@linkplain UriPrefixTree} must pick the same entry as a linear scan of the conditions.
+ */
+public class UriPrefixTreeTest {
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    @Test
+    public void literalPrefixOfTrailingAnyPathKeepsTheParentPath() {
+        assertThat(UriPrefixTree.literalPrefix(match("/x/**"))).isEqualTo("/x");
+        assertThat(UriPrefixTree.literalPrefix(match("/**"))).isEqualTo("");
+        assertThat(UriPrefixTree.literalPrefix(match("/x/*"))).isEqualTo("/x/");
+        assertThat(UriPrefixTree.literalPrefix(match("/x/**/y"))).isEqualTo("/x/");
+        assertThat(UriPrefixTree.literalPrefix(match("/x/y"))).isEqualTo("/x/y");
+        assertThat(UriPrefixTree.literalPrefix(eq("/x/**"))).isEqualTo("/x/**");
+        assertThat(UriPrefixTree.literalPrefix(match("/x//y"))).isNull();
+    }
+
+    @Test
+    public void anyPathMatchesItsParentAndChildren() {
+        final String[] patterns = {"/x/**"};
+        final UriPrefixTree tree = build(patterns);
+        assertThat(firstMatch(tree, patterns, "/x")).isEqualTo(0);
+        assertThat(firstMatch(tree, patterns, "/x/")).isEqualTo(0);
+        assertThat(firstMatch(tree, patterns, "/x/y")).isEqualTo(0);
+        assertThat(firstMatch(tree, patterns, "/xy")).isEqualTo(OrdinalMatcher.NONE);
+        assertThat(firstMatch(tree, patterns, "/y")).isEqualTo(OrdinalMatcher.NONE);
+    }
+
+    @Test
+    public void firstEntryWinsOverLongerPrefixes() {
+        final String[] patterns = {"/x/**", "/x/y", "/x/y/**"};
+        final UriPrefixTree tree = build(patterns);
+        assertThat(firstMatch(tree, patterns, "/x/y")).isEqualTo(0);
+        assertThat(firstMatch(tree, patterns, "/x/y/z")).isEqualTo(0);
+    }
+
+    @Test
+    public void equalEntriesOnlyMatchTheirPath() {
+        final ConditionZkDTO[] conditions = {eq("/a/b"), eq("/a"), match("/a/b/**")};
+        final UriPrefixTree tree = index(conditions);
+        final String[] patterns = {"/a/b", "/a", "/a/b/**"};
+        assertThat(firstMatch(tree, patterns, "/a/b")).isEqualTo(0);
+        assertThat(firstMatch(tree, patterns, "/a")).isEqualTo(1);
+        assertThat(firstMatch(tree, patterns, "/a/b/c")).isEqualTo(2);
+        assertThat(firstMatch(tree, patterns, "/a/c")).isEqualTo(OrdinalMatcher.NONE);
+        assertThat(firstMatch(tree, patterns, "/a/")).isEqualTo(OrdinalMatcher.NONE);
+    }
+
+    @Test
+    public void pathsWithEmptySegmentsCheckEveryEntry() {
+        final String[] patterns = {"/a/b/**", "/c/**"};
+        final UriPrefixTree tree = build(patterns);
+        assertThat(firstMatch(tree, patterns, "/a//b/c")).isEqualTo(linearScan(patterns, "/a//b/c"));
+        assertThat(firstMatch(tree, patterns, "//c/d")).isEqualTo(linearScan(patterns, "//c/d"));
+    }
+
+    @Test
+    public void agreesWithLinearScan() {
+        final String[] patterns = {"/api/**", "/api/v1/*", "/api/v1/users", "/static/**", "/**", "/a*", "/a/{id}"};
+        final String[] paths = {"/", "/api", "/api/", "/api/v1", "/api/v1/users", "/api/v2/x", "/static",
+            "/staticx", "/a", "/ab", "/a/1", "/b", "/api//v1"};
+        final UriPrefixTree tree = build(patterns);
+        for (String path : paths) {
+            assertThat(firstMatch(tree, patterns, path)).as(path).isEqualTo(linearScan(patterns, path));
+        }
+    }
+
+    private static UriPrefixTree build(final String[] patterns) {
+        final ConditionZkDTO[] conditions = new ConditionZkDTO[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            conditions[i] = match(patterns[i]);
+        }
+        return index(conditions);
+    }
+
+    private static UriPrefixTree index(final ConditionZkDTO[] conditions) {
+        final UriPrefixTree.Builder builder = UriPrefixTree.builder();
+        for (int i = 0; i < conditions.length; i++) {
+            builder.add(UriPrefixTree.literalPrefix(conditions[i]), i);
+        }
+        return builder.build();
+    }
+
+    private static int firstMatch(final UriPrefixTree tree, final String[] patterns, final String path) {
+        return tree.firstMatch(path, null, (ordinal, exchange) -> PATH_MATCHER.match(patterns[ordinal], path),
+                OrdinalMatcher.NONE);
+    }
+
+    private static int linearScan(final String[] patterns, final String path) {
+        for (int i = 0; i < patterns.length; i++) {
+            if (PATH_MATCHER.match(patterns[i], path)) {
+                return i;
+            }
+        }
+        return OrdinalMatcher.NONE;
+    }
+
+    private static ConditionZkDTO match(final String pattern) {
+        return new ConditionZkDTO(ParamTypeEnum.URI.getName(), OperatorEnum.MATCH.getAlias(), null, pattern);
+    }
+
+    private static ConditionZkDTO eq(final String path) {
+        return new ConditionZkDTO(ParamTypeEnum.URI.getName(), OperatorEnum.EQ.getAlias(), null, path);
+    }
+}
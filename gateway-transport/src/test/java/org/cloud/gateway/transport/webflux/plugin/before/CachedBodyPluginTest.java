@@ -0,0 +1,132 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.plugin.before;
+
+import org.cloud.gateway.common.constant.Constants;
+import org.cloud.gateway.common.enums.PluginTypeEnum;
+import org.cloud.gateway.transport.webflux.handler.GatewayWebHandler;
+import org.cloud.gateway.transport.webflux.plugin.Plugin;
+import org.cloud.gateway.transport.webflux.plugin.PluginChain;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@linkplain CachedBodyPlugin} in front of a plugin that reads the body.
+ */
+public class CachedBodyPluginTest {
+
+    @Test
+    public void bodyIsCachedWhenALaterPluginRequiresIt() {
+        final BodyReader reader = new BodyReader(true);
+        final MockServerWebExchange exchange = post("payload");
+        handler(reader).handle(exchange).block();
+        assertThat(reader.cached).isTrue();
+        assertThat(reader.bodies).containsExactly("payload", "payload");
+        assertThat((Object) exchange.getAttribute(Constants.CACHED_REQUEST_BODY_ATTR)).isNull();
+    }
+
+    @Test
+    public void bodyIsStreamedWhenNoPluginRequiresIt() {
+        final BodyReader reader = new BodyReader(false);
+        handler(reader).handle(post("payload")).block();
+        assertThat(reader.cached).isFalse();
+        assertThat(reader.bodies).containsExactly("payload");
+    }
+
+    @Test
+    public void requestWithoutBodyIsNotCached() {
+        final BodyReader reader = new BodyReader(true);
+        handler(reader).handle(MockServerWebExchange.from(MockServerHttpRequest.get("/"))).block();
+        assertThat(reader.cached).isFalse();
+    }
+
+    private static GatewayWebHandler handler(final BodyReader reader) {
+        return new GatewayWebHandler(Arrays.asList(new CachedBodyPlugin(), reader));
+    }
+
+    private static MockServerWebExchange post(final String body) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/").body(body));
+    }
+
+    /**
+     * reads the body, twice when it is cached.
+     */
+    private static final class BodyReader implements Plugin {
+
+        private final boolean requiresBody;
+
+        private final List<String> bodies = new ArrayList<>();
+
+        private boolean cached;
+
+        BodyReader(final boolean requiresBody) {
+            this.requiresBody = requiresBody;
+        }
+
+        @Override
+        public Mono<Void> execute(final ServerWebExchange exchange, final PluginChain chain) {
+            cached = Objects.nonNull(exchange.getAttribute(Constants.CACHED_REQUEST_BODY_ATTR));
+            final Mono<Void> read = read(exchange);
+            return cached ? read.then(read(exchange)) : read;
+        }
+
+        private Mono<Void> read(final ServerWebExchange exchange) {
+            return DataBufferUtils.join(exchange.getRequest().getBody())
+                    .doOnNext(dataBuffer -> {
+                        final byte[] bytes = new byte[dataBuffer.readableByteCount()];
+                        dataBuffer.read(bytes);
+                        DataBufferUtils.release(dataBuffer);
+                        bodies.add(new String(bytes, StandardCharsets.UTF_8));
+                    })
+                    .then();
+        }
+
+        @Override
+        public boolean requiresBody() {
+            return requiresBody;
+        }
+
+        @Override
+        public PluginTypeEnum pluginType() {
+            return PluginTypeEnum.FUNCTION;
+        }
+
+        @Override
+        public int getOrder() {
+            return 1;
+        }
+
+        @Override
+        public String named() {
+            return "bodyReader";
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@linkplain HybridRateLimiter} over an {@linkplain InMemoryTokenLeaseSource}.
+ */
+public class HybridRateLimiterTest {
+
+    private static final String ID = "rule";
+
+    private final CountingLeaseSource leaseSource = new CountingLeaseSource();
+
+    @Test
+    public void leasesAreRefilledInBatches() {
+        // 10 tokens per lease, 20 in the shared bucket
+        final HybridRateLimiter limiter = limiter(10000L, new LocalRateLimiter(100L, 60000L));
+        for (int i = 0; i < 20; i++) {
+            assertThat(isAllowed(limiter, 1, 20).isAllowed()).isTrue();
+        }
+        assertThat(isAllowed(limiter, 1, 20).isAllowed()).isFalse();
+        assertThat(leaseSource.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void emptyLeaseDeniesWithoutAskingTheSource() {
+        final HybridRateLimiter limiter = limiter(1000L, new LocalRateLimiter(100L, 60000L));
+        assertThat(isAllowed(limiter, 1, 1).isAllowed()).isTrue();
+        final int calls = leaseSource.calls.get();
+        for (int i = 0; i < 5; i++) {
+            assertThat(isAllowed(limiter, 1, 1).isAllowed()).isFalse();
+        }
+        assertThat(leaseSource.calls.get()).isEqualTo(calls);
+    }
+
+    @Test
+    public void expiredLeaseIsReplaced() throws InterruptedException {
+        // 10 tokens per lease, valid for 100 millis
+        final HybridRateLimiter limiter = limiter(100L, new LocalRateLimiter(100L, 60000L));
+        assertThat(isAllowed(limiter, 100, 100).getTokensLeft()).isEqualTo(9L);
+        Thread.sleep(150L);
+        assertThat(isAllowed(limiter, 100, 100).getTokensLeft()).isEqualTo(9L);
+        assertThat(leaseSource.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void leftoverTokensKeepTheExpiryOfTheirBatch() throws InterruptedException {
+        // 15 tokens per lease, valid for 300 millis, the next lease is requested with 3 left
+        final HybridRateLimiter limiter = limiter(300L, new LocalRateLimiter(100L, 60000L));
+        assertThat(isAllowed(limiter, 50, 100).getTokensLeft()).isEqualTo(14L);
+        Thread.sleep(150L);
+        for (int i = 0; i < 11; i++) {
+            isAllowed(limiter, 50, 100);
+        }
+        assertThat(leaseSource.calls.get()).isEqualTo(2);
+        // the 3 tokens left of the first lease expire with it, the second lease is still valid
+        Thread.sleep(200L);
+        assertThat(isAllowed(limiter, 50, 100).getTokensLeft()).isEqualTo(14L);
+    }
+
+    @Test
+    public void fallbackDecidesWhileTheSourceFails() {
+        leaseSource.failing = true;
+        final HybridRateLimiter limiter = limiter(60000L, new LocalRateLimiter(100L, 60000L));
+        assertThat(isAllowed(limiter, 1, 2).isAllowed()).isTrue();
+        assertThat(isAllowed(limiter, 1, 2).isAllowed()).isTrue();
+        assertThat(isAllowed(limiter, 1, 2).isAllowed()).isFalse();
+        assertThat(leaseSource.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedSourceIsAskedAgainAfterLeaseTime() throws InterruptedException {
+        leaseSource.failing = true;
+        final HybridRateLimiter limiter = limiter(100L, new LocalRateLimiter(100L, 60000L));
+        assertThat(isAllowed(limiter, 100, 100).isAllowed()).isTrue();
+        leaseSource.failing = false;
+        assertThat(isAllowed(limiter, 100, 100).isAllowed()).isTrue();
+        assertThat(leaseSource.calls.get()).isEqualTo(1);
+        Thread.sleep(150L);
+        isAllowed(limiter, 100, 100);
+        assertThat(leaseSource.calls.get()).isEqualTo(2);
+        assertThat(isAllowed(limiter, 100, 100).getTokensLeft()).isEqualTo(9L);
+    }
+
+    private HybridRateLimiter limiter(final long leaseTime, final RateLimiter fallback) {
+        return new HybridRateLimiter(leaseSource, fallback, leaseTime, 0.25D, 100L, 60000L);
+    }
+
+    private static RateLimiterResponse isAllowed(final HybridRateLimiter limiter, final double replenishRate,
+                                                 final double burstCapacity) {
+        return limiter.isAllowed(ID, replenishRate, burstCapacity).block();
+    }
+
+    private static final class CountingLeaseSource implements TokenLeaseSource {
+
+        private final TokenLeaseSource delegate = new InMemoryTokenLeaseSource(100L, 60000L);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile boolean failing;
+
+        @Override
+        public Mono<Long> lease(final String id, final double replenishRate, final double burstCapacity,
+                                final long requested) {
+            calls.incrementAndGet();
+            return failing ? Mono.error(new IllegalStateException("lease source down"))
+                    : delegate.lease(id, replenishRate, burstCapacity, requested);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.ratelimiter;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * the GCRA buckets of {@linkplain LocalRateLimiter}.
+ */
+public class LocalRateLimiterTest {
+
+    private final LocalRateLimiter limiter = new LocalRateLimiter(100L, 60000L);
+
+    @Test
+    public void burstIsAllowedThenDenied() {
+        // one token per second, so nothing refills while the test runs
+        for (long left = 4; left >= 0; left--) {
+            final RateLimiterResponse response = isAllowed("burst", 1, 5);
+            assertThat(response.isAllowed()).isTrue();
+            assertThat(response.getTokensLeft()).isEqualTo(left);
+        }
+        assertThat(isAllowed("burst", 1, 5).isAllowed()).isFalse();
+        assertThat(isAllowed("burst", 1, 5).getTokensLeft()).isEqualTo(0L);
+    }
+
+    @Test
+    public void deniedRequestsDoNotConsumeTokens() throws InterruptedException {
+        // one token per 50 millis
+        assertThat(isAllowed("denied", 20, 1).isAllowed()).isTrue();
+        for (int i = 0; i < 10; i++) {
+            assertThat(isAllowed("denied", 20, 1).isAllowed()).isFalse();
+        }
+        Thread.sleep(120L);
+        assertThat(isAllowed("denied", 20, 1).isAllowed()).isTrue();
+    }
+
+    @Test
+    public void bucketRefillsOverTime() throws InterruptedException {
+        // one token per 50 millis
+        for (int i = 0; i < 2; i++) {
+            assertThat(isAllowed("refill", 20, 2).isAllowed()).isTrue();
+        }
+        assertThat(isAllowed("refill", 20, 2).isAllowed()).isFalse();
+        Thread.sleep(250L);
+        final RateLimiterResponse response = isAllowed("refill", 20, 2);
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getTokensLeft()).isEqualTo(1L);
+    }
+
+    @Test
+    public void idsHaveTheirOwnBuckets() {
+        assertThat(isAllowed("a", 1, 1).isAllowed()).isTrue();
+        assertThat(isAllowed("a", 1, 1).isAllowed()).isFalse();
+        assertThat(isAllowed("b", 1, 1).isAllowed()).isTrue();
+    }
+
+    private RateLimiterResponse isAllowed(final String id, final double replenishRate, final double burstCapacity) {
+        return limiter.isAllowed(id, replenishRate, burstCapacity).block();
+    }
+}
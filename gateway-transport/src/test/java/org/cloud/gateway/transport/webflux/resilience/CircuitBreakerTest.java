@@ -0,0 +1,186 @@
+/*
+ *   Licensed to the Apache Software Foundation (ASF) under one or more
+ *   contributor license agreements.  See the NOTICE file distributed with
+ *   this work for additional information regarding copyright ownership.
+ *   The ASF licenses this file to You under the Apache License, Version 2.0
+ *   (the "License"); you may not use this file except in compliance with
+ *   the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ */
+
+package org.cloud.gateway.transport.webflux.resilience;
+
+import org.cloud.gateway.common.dto.convert.DivideUpstream;
+import org.cloud.gateway.common.dto.convert.HystrixHandle;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * the window, states and bulkhead of {@linkplain CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+    private final DivideUpstream upstream = upstream();
+
+    @Test
+    public void opensOnceTheWindowIsOverTheThreshold() {
+        final CircuitBreaker breaker = breaker(handle(10, 50, 60000));
+        record(breaker, 5, false);
+        record(breaker, 4, true);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onError();
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void staysClosedBelowTheRequestVolume() {
+        final CircuitBreaker breaker = breaker(handle(10, 50, 60000));
+        record(breaker, 9, true);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void staysClosedBelowTheErrorPercentage() {
+        final CircuitBreaker breaker = breaker(handle(10, 50, 60000));
+        record(breaker, 6, false);
+        record(breaker, 4, true);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void successfulTrialClosesAndClearsTheWindow() throws InterruptedException {
+        final CircuitBreaker breaker = breaker(handle(2, 50, 50));
+        record(breaker, 2, true);
+        assertThat(breaker.tryAcquire()).isFalse();
+        Thread.sleep(80L);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+        breaker.onSuccess();
+        record(breaker, 1, true);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void failedTrialReopens() throws InterruptedException {
+        final CircuitBreaker breaker = breaker(handle(2, 50, 50));
+        record(breaker, 2, true);
+        Thread.sleep(80L);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onError();
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void cancelledTrialWaitsAnotherSleepWindow() throws InterruptedException {
+        final CircuitBreaker breaker = breaker(handle(2, 50, 100));
+        record(breaker, 2, true);
+        Thread.sleep(130L);
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.release();
+        assertThat(breaker.tryAcquire()).isFalse();
+        Thread.sleep(130L);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void trialTurnedAwayByTheBulkheadWaitsAnotherSleepWindow() throws InterruptedException {
+        final HystrixHandle handle = handle(1, 50, 100);
+        handle.setMaxConcurrentRequests(2);
+        final CircuitBreaker breaker = breaker(handle);
+        // one request stays in flight while another fails and opens the circuit
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        breaker.onError();
+        handle.setMaxConcurrentRequests(1);
+        Thread.sleep(130L);
+        assertThat(breaker.tryAcquire()).isFalse();
+        breaker.release();
+        assertThat(breaker.tryAcquire()).isFalse();
+        Thread.sleep(130L);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void bulkheadLimitsRequestsInFlight() {
+        final HystrixHandle handle = handle(10, 50, 60000);
+        handle.setMaxConcurrentRequests(2);
+        final CircuitBreaker breaker = breaker(handle);
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.tryAcquire()).isFalse();
+        breaker.release();
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void breakerIsSharedUntilTheHandleChanges() throws InterruptedException {
+        final String ruleId = UUID.randomUUID().toString();
+        final HystrixHandle handle = handle(10, 50, 60000);
+        final Set<CircuitBreaker> breakers = ConcurrentHashMap.newKeySet();
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    breakers.add(CircuitBreaker.of(ruleId, upstream, handle));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        assertThat(breakers).hasSize(1);
+        final CircuitBreaker breaker = breakers.iterator().next();
+        assertThat(CircuitBreaker.of(ruleId, upstream, handle)).isSameAs(breaker);
+        assertThat(CircuitBreaker.of(ruleId, upstream, handle(10, 50, 60000))).isNotSameAs(breaker);
+    }
+
+    private CircuitBreaker breaker(final HystrixHandle handle) {
+        return CircuitBreaker.of(UUID.randomUUID().toString(), upstream, handle);
+    }
+
+    private static void record(final CircuitBreaker breaker, final int count, final boolean failure) {
+        for (int i = 0; i < count; i++) {
+            assertThat(breaker.tryAcquire()).isTrue();
+            if (failure) {
+                breaker.onError();
+            } else {
+                breaker.onSuccess();
+            }
+        }
+    }
+
+    private static HystrixHandle handle(final int requestVolume, final int errorPercentage, final int sleepWindow) {
+        final HystrixHandle handle = new HystrixHandle();
+        handle.setRequestVolumeThreshold(requestVolume);
+        handle.setErrorThresholdPercentage(errorPercentage);
+        handle.setSleepWindowInMilliseconds(sleepWindow);
+        handle.setMaxConcurrentRequests(100);
+        return handle;
+    }
+
+    private static DivideUpstream upstream() {
+        final DivideUpstream upstream = new DivideUpstream();
+        upstream.setUpstreamUrl("10.0.0.1:8080");
+        return upstream;
+    }
+}